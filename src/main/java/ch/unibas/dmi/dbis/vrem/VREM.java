@@ -1,11 +1,14 @@
 package ch.unibas.dmi.dbis.vrem;
 
+import ch.unibas.dmi.dbis.vrem.database.IndexCommand;
+import ch.unibas.dmi.dbis.vrem.database.SaveBenchmarkCommand;
+import ch.unibas.dmi.dbis.vrem.database.migration.ExhibitIdMigration;
 import ch.unibas.dmi.dbis.vrem.importer.ExhibitionImporter;
 import ch.unibas.dmi.dbis.vrem.server.WebServer;
 import com.github.rvesse.airline.annotations.Cli;
 import com.github.rvesse.airline.help.Help;
 
-@Cli(name = "VREM", description = "Virtual Reality Exhibition Manager", commands = {WebServer.class, ExhibitionImporter.class, Help.class}, defaultCommand = Help.class)
+@Cli(name = "VREM", description = "Virtual Reality Exhibition Manager", commands = {WebServer.class, ExhibitionImporter.class, ExhibitIdMigration.class, IndexCommand.class, SaveBenchmarkCommand.class, Help.class}, defaultCommand = Help.class)
 public class VREM {
 
     /**
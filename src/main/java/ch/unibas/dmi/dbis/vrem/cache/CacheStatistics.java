@@ -0,0 +1,28 @@
+package ch.unibas.dmi.dbis.vrem.cache;
+
+/**
+ * Snapshot of the hit / miss statistics of a cache.
+ */
+public class CacheStatistics {
+
+    public final long hits;
+
+    public final long misses;
+
+    public final long evictions;
+
+    public final long size;
+
+    public final long capacity;
+
+    public final double hitRate;
+
+    public CacheStatistics(long hits, long misses, long evictions, long size, long capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.capacity = capacity;
+        this.hitRate = (hits + misses) == 0 ? 0.0 : (double) hits / (double) (hits + misses);
+    }
+}
@@ -0,0 +1,243 @@
+package ch.unibas.dmi.dbis.vrem.cache;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.PageRequest;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriterListener;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import org.bson.types.ObjectId;
+
+/**
+ * In-memory index of all {@link Exhibit}s known to VREM, i.e. those placed in an {@link Exhibition} and those uploaded to an art collection. Exhibits are identified by their id: copies of an {@link Exhibit} placed in several {@link Exhibition}s are listed once, while different {@link Exhibit}s that share a path (e.g. identical uploads stored as the same blob) are listed separately. Exhibits without an id are not indexed.
+ * <p>
+ * The catalog is built once from the database and then kept up to date by registering it as a {@link VREMWriterListener}, so that listing exhibits doesn't require scanning all exhibitions. Exhibits are kept sorted by path and by name, so that a page is found in logarithmic time.
+ */
+public class ExhibitCatalog implements VREMWriterListener {
+
+    /**
+     * Orders entries by path and then by id.
+     */
+    private static final Comparator<Entry> BY_PATH = Comparator.comparing((Entry e) -> e.path, Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(e -> e.id);
+
+    /**
+     * Orders entries by name (missing names first) and then by id.
+     */
+    private static final Comparator<Entry> BY_NAME = Comparator.comparing((Entry e) -> e.name, Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(e -> e.id);
+
+    /**
+     * Indexed {@link Exhibit}s, keyed by id. Guarded by this.
+     */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Indexed {@link Exhibit}s, ordered by {@link #BY_PATH}. Guarded by this.
+     */
+    private final TreeSet<Entry> paths = new TreeSet<>(BY_PATH);
+
+    /**
+     * Indexed {@link Exhibit}s, ordered by {@link #BY_NAME}. Guarded by this.
+     */
+    private final TreeSet<Entry> names = new TreeSet<>(BY_NAME);
+
+    /**
+     * Ids of the {@link Exhibit}s placed in each {@link Exhibition}. Guarded by this.
+     */
+    private final Map<ObjectId, List<String>> exhibitions = new HashMap<>();
+
+    /**
+     * Unmodifiable snapshot of the indexed {@link Exhibit}s; NULL if it has to be rebuilt. Guarded by this.
+     */
+    private List<Exhibit> snapshot;
+
+    /**
+     * Replaces the content of this catalog.
+     *
+     * @param exhibitions All {@link Exhibition}s stored in the database.
+     * @param uploaded All {@link Exhibit}s stored in art collections.
+     */
+    public synchronized void rebuild(Iterable<Exhibition> exhibitions, Iterable<Exhibit> uploaded) {
+        this.entries.clear();
+        this.paths.clear();
+        this.names.clear();
+        this.exhibitions.clear();
+        for (Exhibition exhibition : exhibitions) {
+            this.place(exhibition);
+        }
+        for (Exhibit exhibit : uploaded) {
+            this.upload(exhibit);
+        }
+        this.snapshot = null;
+    }
+
+    /**
+     * Returns all indexed {@link Exhibit}s, sorted by path. The returned list is unmodifiable and shared between callers until the catalog changes.
+     */
+    public synchronized List<Exhibit> list() {
+        if (this.snapshot == null) {
+            final List<Exhibit> list = new ArrayList<>(this.paths.size());
+            for (Entry entry : this.paths) {
+                list.add(entry.exhibit);
+            }
+            this.snapshot = Collections.unmodifiableList(list);
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Returns a single page of indexed {@link Exhibit}s. Cursors carry the path or name as key and the id as tiebreaker.
+     *
+     * @param page {@link PageRequest} with sort key {@link VREMReader#SORT_PATH} or {@link VREMReader#SORT_NAME}. If limited, one entry more than the limit is returned to indicate that further pages exist.
+     */
+    public synchronized List<Exhibit> list(PageRequest page) {
+        final boolean byName = VREMReader.SORT_NAME.equals(page.sort);
+        NavigableSet<Entry> view = byName ? this.names : this.paths;
+        if (page.descending) {
+            view = view.descendingSet();
+        }
+        if (!page.isFirst()) {
+            view = view.tailSet(byName ? new Entry(page.afterTiebreaker, null, page.afterKey) : new Entry(page.afterTiebreaker, page.afterKey, null), false);
+        }
+        final Iterator<Entry> iterator = view.iterator();
+        final int size = page.isLimited() ? page.limit + 1 : this.entries.size();
+        final List<Exhibit> list = new ArrayList<>(Math.min(size, this.entries.size()));
+        while (list.size() < size && iterator.hasNext()) {
+            list.add(iterator.next().exhibit);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the number of indexed {@link Exhibit}s.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    @Override
+    public synchronized void onExhibitionSaved(Exhibition exhibition) {
+        this.remove(exhibition.id);
+        this.place(exhibition);
+        this.snapshot = null;
+    }
+
+    @Override
+    public synchronized void onExhibitionDeleted(ObjectId id) {
+        this.remove(id);
+        this.snapshot = null;
+    }
+
+    @Override
+    public synchronized void onExhibitUploaded(String collection, Exhibit exhibit) {
+        this.upload(exhibit);
+        this.snapshot = null;
+    }
+
+    /**
+     * Adds references for all {@link Exhibit}s placed in the given {@link Exhibition}. Must be called while holding the lock.
+     */
+    private void place(Exhibition exhibition) {
+        final List<Exhibit> exhibits = exhibition.getExhibits();
+        final List<String> ids = new ArrayList<>(exhibits.size());
+        for (Exhibit exhibit : exhibits) {
+            if (exhibit.id == null || exhibit.path == null) {
+                continue;
+            }
+            this.entry(exhibit).references++;
+            ids.add(exhibit.id);
+        }
+        this.exhibitions.put(exhibition.id, ids);
+    }
+
+    /**
+     * Removes the references held by the given {@link Exhibition}. Must be called while holding the lock.
+     */
+    private void remove(ObjectId id) {
+        final List<String> ids = this.exhibitions.remove(id);
+        if (ids == null) {
+            return;
+        }
+        for (String exhibit : ids) {
+            final Entry entry = this.entries.get(exhibit);
+            if (entry != null && --entry.references <= 0 && !entry.uploaded) {
+                this.entries.remove(exhibit);
+                this.paths.remove(entry);
+                this.names.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Adds an uploaded {@link Exhibit}; it takes precedence over placed copies with the same id. Must be called while holding the lock.
+     */
+    private void upload(Exhibit exhibit) {
+        if (exhibit.id == null || exhibit.path == null) {
+            return;
+        }
+        final Entry entry = this.entry(exhibit);
+        this.paths.remove(entry);
+        this.names.remove(entry);
+        entry.exhibit = exhibit;
+        entry.path = exhibit.path;
+        entry.name = exhibit.name;
+        entry.uploaded = true;
+        this.paths.add(entry);
+        this.names.add(entry);
+    }
+
+    /**
+     * Returns the entry for the id of the given {@link Exhibit}, creating it if necessary. Must be called while holding the lock.
+     */
+    private Entry entry(Exhibit exhibit) {
+        Entry entry = this.entries.get(exhibit.id);
+        if (entry == null) {
+            entry = new Entry(exhibit.id, exhibit.path, exhibit.name);
+            entry.exhibit = exhibit;
+            this.entries.put(exhibit.id, entry);
+            this.paths.add(entry);
+            this.names.add(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * An indexed {@link Exhibit}.
+     */
+    private static class Entry {
+
+        private final String id;
+
+        /**
+         * Path and name of the {@link Exhibit}; copied because they determine the position in {@link #paths} and {@link #names}.
+         */
+        private String path;
+
+        private String name;
+
+        private Exhibit exhibit;
+
+        /**
+         * Number of {@link Exhibition}s this {@link Exhibit} is placed in.
+         */
+        private int references;
+
+        /**
+         * True if this {@link Exhibit} is part of an art collection; such entries are never removed.
+         */
+        private boolean uploaded;
+
+        private Entry(String id, String path, String name) {
+            this.id = id;
+            this.path = path;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package ch.unibas.dmi.dbis.vrem.cache;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriterListener;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.bson.types.ObjectId;
+
+/**
+ * Size-bounded, least-recently-used cache for decoded {@link Exhibition}s, keyed by id and by name.
+ * <p>
+ * Concurrent misses for the same key are collapsed into a single load, so that many clients joining the same exhibition at once only cause one database query. The cache is kept consistent by registering it as a {@link VREMWriterListener}.
+ */
+public class ExhibitionCache implements VREMWriterListener {
+
+    /**
+     * Maximum number of {@link Exhibition}s held by this cache.
+     */
+    private final int capacity;
+
+    /**
+     * Cached {@link Exhibition}s in access-order. Guarded by this.
+     */
+    private final LinkedHashMap<ObjectId, Exhibition> entries;
+
+    /**
+     * Secondary index mapping names to ids. Guarded by this.
+     */
+    private final Map<String, ObjectId> names = new HashMap<>();
+
+    /**
+     * Loads that are currently in progress, keyed by id or name.
+     */
+    private final ConcurrentHashMap<Object, CompletableFuture<Exhibition>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on every invalidation; loads that overlap with an invalidation are not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity Maximum number of {@link Exhibition}s held by this cache.
+     */
+    public ExhibitionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of an ExhibitionCache must be positive.");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<ObjectId, Exhibition>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, Exhibition> eldest) {
+                if (this.size() > ExhibitionCache.this.capacity) {
+                    ExhibitionCache.this.names.remove(eldest.getValue().name, eldest.getKey());
+                    ExhibitionCache.this.evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the {@link Exhibition} with the given id, using the loader in case of a cache miss.
+     *
+     * @param id The {@link ObjectId} of the {@link Exhibition}.
+     * @param loader Loads the {@link Exhibition} from the database. May return NULL!
+     * @return The {@link Exhibition} or NULL, if the loader didn't find one.
+     */
+    public Exhibition get(ObjectId id, Supplier<Exhibition> loader) {
+        synchronized (this) {
+            final Exhibition exhibition = this.entries.get(id);
+            if (exhibition != null) {
+                this.hits.incrementAndGet();
+                return exhibition;
+            }
+        }
+        this.misses.incrementAndGet();
+        return this.load(id, loader);
+    }
+
+    /**
+     * Returns the {@link Exhibition} with the given name, using the loader in case of a cache miss.
+     *
+     * @param name The name of the {@link Exhibition}.
+     * @param loader Loads the {@link Exhibition} from the database. May return NULL!
+     * @return The {@link Exhibition} or NULL, if the loader didn't find one.
+     */
+    public Exhibition get(String name, Supplier<Exhibition> loader) {
+        synchronized (this) {
+            final ObjectId id = this.names.get(name);
+            if (id != null) {
+                final Exhibition exhibition = this.entries.get(id);
+                if (exhibition != null) {
+                    this.hits.incrementAndGet();
+                    return exhibition;
+                }
+            }
+        }
+        this.misses.incrementAndGet();
+        return this.load(name, loader);
+    }
+
+    /**
+     * Asynchronous variant of {@link #get(ObjectId, Supplier)}: a cache hit completes immediately, a miss completes once the loader's future does.
+     *
+     * @param id The {@link ObjectId} of the {@link Exhibition}.
+     * @param loader Starts loading the {@link Exhibition} from the database. The future may complete with NULL!
+     */
+    public CompletableFuture<Exhibition> getAsync(ObjectId id, Supplier<CompletableFuture<Exhibition>> loader) {
+        synchronized (this) {
+            final Exhibition exhibition = this.entries.get(id);
+            if (exhibition != null) {
+                this.hits.incrementAndGet();
+                return CompletableFuture.completedFuture(exhibition);
+            }
+        }
+        this.misses.incrementAndGet();
+        return this.loadAsync(id, loader);
+    }
+
+    /**
+     * Asynchronous variant of {@link #get(String, Supplier)}: a cache hit completes immediately, a miss completes once the loader's future does.
+     *
+     * @param name The name of the {@link Exhibition}.
+     * @param loader Starts loading the {@link Exhibition} from the database. The future may complete with NULL!
+     */
+    public CompletableFuture<Exhibition> getAsync(String name, Supplier<CompletableFuture<Exhibition>> loader) {
+        synchronized (this) {
+            final ObjectId id = this.names.get(name);
+            if (id != null) {
+                final Exhibition exhibition = this.entries.get(id);
+                if (exhibition != null) {
+                    this.hits.incrementAndGet();
+                    return CompletableFuture.completedFuture(exhibition);
+                }
+            }
+        }
+        this.misses.incrementAndGet();
+        return this.loadAsync(name, loader);
+    }
+
+    /**
+     * Removes the {@link Exhibition} with the given id from this cache.
+     *
+     * @param id The {@link ObjectId} of the {@link Exhibition} to remove.
+     */
+    public synchronized void invalidate(ObjectId id) {
+        this.generation.incrementAndGet();
+        final Exhibition removed = this.entries.remove(id);
+        if (removed != null) {
+            this.names.remove(removed.name, id);
+        }
+        this.names.values().remove(id);
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    public synchronized void clear() {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+        this.names.clear();
+    }
+
+    /**
+     * Returns a snapshot of this cache's statistics.
+     */
+    public synchronized CacheStatistics statistics() {
+        return new CacheStatistics(this.hits.get(), this.misses.get(), this.evictions.get(), this.entries.size(), this.capacity);
+    }
+
+    @Override
+    public void onExhibitionSaved(Exhibition exhibition) {
+        this.invalidate(exhibition.id);
+    }
+
+    @Override
+    public void onExhibitionDeleted(ObjectId id) {
+        this.invalidate(id);
+    }
+
+    /**
+     * Loads an {@link Exhibition} and adds it to the cache. If a load for the same key is already in progress, its result is awaited instead.
+     */
+    private Exhibition load(Object key, Supplier<Exhibition> loader) {
+        try {
+            return this.loadAsync(key, () -> CompletableFuture.completedFuture(loader.get())).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts loading an {@link Exhibition} and adds it to the cache once it has been loaded. If a load for the same key is already in progress, its future is returned instead.
+     */
+    private CompletableFuture<Exhibition> loadAsync(Object key, Supplier<CompletableFuture<Exhibition>> loader) {
+        final CompletableFuture<Exhibition> future = new CompletableFuture<>();
+        final CompletableFuture<Exhibition> running = this.loading.putIfAbsent(key, future);
+        if (running != null) {
+            return running;
+        }
+        final long generation = this.generation.get();
+        CompletableFuture<Exhibition> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loaded = new CompletableFuture<>();
+            loaded.completeExceptionally(e);
+        }
+        loaded.whenComplete((exhibition, error) -> {
+            try {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    if (exhibition != null) {
+                        this.put(exhibition, generation);
+                    }
+                    future.complete(exhibition);
+                }
+            } finally {
+                this.loading.remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    private synchronized void put(Exhibition exhibition, long generation) {
+        if (this.generation.get() != generation) {
+            return;
+        }
+        this.entries.put(exhibition.id, exhibition);
+        if (exhibition.name != null) {
+            this.names.put(exhibition.name, exhibition.id);
+        }
+    }
+}
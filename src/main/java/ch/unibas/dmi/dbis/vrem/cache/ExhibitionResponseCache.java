@@ -0,0 +1,195 @@
+package ch.unibas.dmi.dbis.vrem.cache;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriterListener;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import org.bson.types.ObjectId;
+
+/**
+ * Size-bounded, least-recently-used cache for the serialized JSON representation of {@link Exhibition}s.
+ * <p>
+ * An entry is valid for exactly one {@link Exhibition#version}. Entries carry a strong entity tag derived from their content and, on demand, a gzip compressed copy of the JSON.
+ */
+public class ExhibitionResponseCache implements VREMWriterListener {
+
+    /**
+     * Maximum number of serialized {@link Exhibition}s held by this cache.
+     */
+    private final int capacity;
+
+    /**
+     * {@link Gson} instance used for serialization.
+     */
+    private final Gson gson;
+
+    /**
+     * Cached entries in access-order. Guarded by this.
+     */
+    private final LinkedHashMap<ObjectId, SerializedExhibition> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity Maximum number of serialized {@link Exhibition}s held by this cache.
+     * @param gson {@link Gson} instance used for serialization.
+     */
+    public ExhibitionResponseCache(int capacity, Gson gson) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of an ExhibitionResponseCache must be positive.");
+        }
+        this.capacity = capacity;
+        this.gson = gson;
+        this.entries = new LinkedHashMap<ObjectId, SerializedExhibition>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, SerializedExhibition> eldest) {
+                if (this.size() > ExhibitionResponseCache.this.capacity) {
+                    ExhibitionResponseCache.this.evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the serialized representation of the given {@link Exhibition}, serializing it if no entry exists for its current version.
+     *
+     * @param exhibition The {@link Exhibition} to get the serialized representation for.
+     * @return {@link SerializedExhibition}
+     */
+    public SerializedExhibition get(Exhibition exhibition) {
+        synchronized (this) {
+            final SerializedExhibition entry = this.entries.get(exhibition.id);
+            if (entry != null && entry.version == exhibition.version) {
+                this.hits.incrementAndGet();
+                return entry;
+            }
+        }
+        this.misses.incrementAndGet();
+        final SerializedExhibition entry = new SerializedExhibition(exhibition.version, this.serialize(exhibition));
+        synchronized (this) {
+            this.entries.put(exhibition.id, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Removes the serialized representation of the {@link Exhibition} with the given id from this cache.
+     */
+    public synchronized void invalidate(ObjectId id) {
+        this.entries.remove(id);
+    }
+
+    /**
+     * Returns a snapshot of this cache's statistics.
+     */
+    public synchronized CacheStatistics statistics() {
+        return new CacheStatistics(this.hits.get(), this.misses.get(), this.evictions.get(), this.entries.size(), this.capacity);
+    }
+
+    @Override
+    public void onExhibitionSaved(Exhibition exhibition) {
+        this.invalidate(exhibition.id);
+    }
+
+    @Override
+    public void onExhibitionDeleted(ObjectId id) {
+        this.invalidate(id);
+    }
+
+    private byte[] serialize(Exhibition exhibition) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final JsonWriter writer = this.gson.newJsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            this.gson.toJson(exhibition, Exhibition.class, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Serialized representation of one version of an {@link Exhibition}.
+     */
+    public static class SerializedExhibition {
+
+        public final long version;
+
+        private final byte[] json;
+
+        private final String etag;
+
+        private volatile byte[] gzip;
+
+        private SerializedExhibition(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+            this.etag = "\"" + digest(json) + "\"";
+        }
+
+        /**
+         * Returns the UTF-8 encoded JSON. The returned array must not be modified.
+         */
+        public byte[] json() {
+            return this.json;
+        }
+
+        /**
+         * Returns the gzip compressed JSON, which is created on first access. The returned array must not be modified.
+         */
+        public byte[] gzip() {
+            byte[] gzip = this.gzip;
+            if (gzip == null) {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.json.length / 4);
+                try (final GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                    out.write(this.json);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                gzip = bytes.toByteArray();
+                this.gzip = gzip;
+            }
+            return gzip;
+        }
+
+        /**
+         * Returns the strong entity tag of the JSON representation.
+         */
+        public String etag() {
+            return this.etag;
+        }
+
+        /**
+         * Returns the strong entity tag of the gzip compressed representation.
+         */
+        public String gzipEtag() {
+            return this.etag.substring(0, this.etag.length() - 1) + "-gzip\"";
+        }
+
+        private static String digest(byte[] content) {
+            try {
+                final byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+                final StringBuilder builder = new StringBuilder(hash.length * 2);
+                for (byte b : hash) {
+                    builder.append(String.format("%02x", b));
+                }
+                return builder.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+            }
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package ch.unibas.dmi.dbis.vrem.config;
 
 import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class DatabaseConfig {
 
@@ -11,11 +18,118 @@ public class DatabaseConfig {
 
     public String database;
 
+    /**
+     * Optional connection string, e.g. to connect to a replica set; takes precedence over host and port.
+     */
+    public String connectionString;
+
+    /**
+     * Read preference of the read-only handlers, e.g. "secondaryPreferred" to spread reads across a replica set.
+     */
+    public String readPreference = "primary";
+
+    /**
+     * Wire compressors in order of preference: "zlib" or "snappy" (requires snappy-java on the classpath).
+     */
+    public List<String> compressors = new ArrayList<>();
+
+    /**
+     * Connection pool and timeout settings; settings that are NULL keep the value of the connection string or the driver's default. Times are in milliseconds.
+     */
+    public Integer maxPoolSize;
+    public Integer minPoolSize;
+    public Integer maxWaitQueueSize;
+    public Long maxWaitTime;
+    public Long maxConnectionIdleTime;
+    public Integer connectTimeout;
+    public Integer socketTimeout;
+
+    /**
+     * Write concern used for all writes: either a number of nodes or a tag such as "majority".
+     */
+    public String w = "1";
+
+    /**
+     * Whether writes have to be committed to the journal before they are acknowledged.
+     */
+    public boolean journal = false;
+
+    /**
+     * Time limit in milliseconds for the write concern to be satisfied; 0 means no limit.
+     */
+    public long wtimeout = 0;
 
     /**
      * Generates a MongoDB connection string.
      */
     public ConnectionString getConnectionString() {
+        if (this.connectionString != null) {
+            return new ConnectionString(this.connectionString);
+        }
         return new ConnectionString(String.format("mongodb://%s:%d", this.host, this.port));
     }
+
+    /**
+     * Applies the connection, pool, timeout and compression settings to the given builder.
+     */
+    public MongoClientSettings.Builder apply(MongoClientSettings.Builder builder) {
+        builder.applyConnectionString(this.getConnectionString()).writeConcern(this.getWriteConcern());
+        builder.applyToConnectionPoolSettings(pool -> {
+            if (this.maxPoolSize != null) {
+                pool.maxSize(this.maxPoolSize);
+            }
+            if (this.minPoolSize != null) {
+                pool.minSize(this.minPoolSize);
+            }
+            if (this.maxWaitQueueSize != null) {
+                pool.maxWaitQueueSize(this.maxWaitQueueSize);
+            }
+            if (this.maxWaitTime != null) {
+                pool.maxWaitTime(this.maxWaitTime, TimeUnit.MILLISECONDS);
+            }
+            if (this.maxConnectionIdleTime != null) {
+                pool.maxConnectionIdleTime(this.maxConnectionIdleTime, TimeUnit.MILLISECONDS);
+            }
+        });
+        builder.applyToSocketSettings(socket -> {
+            if (this.connectTimeout != null) {
+                socket.connectTimeout(this.connectTimeout, TimeUnit.MILLISECONDS);
+            }
+            if (this.socketTimeout != null) {
+                socket.readTimeout(this.socketTimeout, TimeUnit.MILLISECONDS);
+            }
+        });
+        if (this.compressors != null && !this.compressors.isEmpty()) {
+            final List<MongoCompressor> list = new ArrayList<>();
+            for (String compressor : this.compressors) {
+                switch (compressor) {
+                    case "zlib":
+                        list.add(MongoCompressor.createZlibCompressor());
+                        break;
+                    case "snappy":
+                        list.add(MongoCompressor.createSnappyCompressor());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported compressor '" + compressor + "'.");
+                }
+            }
+            builder.compressorList(list);
+        }
+        return builder;
+    }
+
+    /**
+     * Returns the {@link ReadPreference} of the read-only handlers that bypass the caches, i.e. listings and rooms. Reads that fill a cache always go to the primary.
+     */
+    public ReadPreference getReadPreference() {
+        return ReadPreference.valueOf(this.readPreference);
+    }
+
+    /**
+     * Generates the {@link WriteConcern} used for all writes.
+     */
+    public WriteConcern getWriteConcern() {
+        final WriteConcern concern = !this.w.isEmpty() && this.w.chars().allMatch(Character::isDigit) ? new WriteConcern(Integer.parseInt(this.w)) : new WriteConcern(this.w);
+        return concern.withJournal(this.journal).withWTimeout(this.wtimeout, TimeUnit.MILLISECONDS);
+    }
 }
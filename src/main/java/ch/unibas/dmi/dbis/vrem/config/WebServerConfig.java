@@ -1,7 +1,12 @@
 package ch.unibas.dmi.dbis.vrem.config;
 
+import ch.unibas.dmi.dbis.vrem.server.handlers.content.LevelsOfDetail;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class WebServerConfig {
 
@@ -15,13 +20,149 @@ public class WebServerConfig {
      */
     private short port;
 
+    /**
+     * Maximum number of decoded exhibitions kept in memory.
+     */
+    private int exhibitionCacheSize = 64;
+
+    /**
+     * Number of seconds clients may cache content without revalidating it, by content type. Keys are either a content type (e.g. {@code image/png}), a wildcard for all subtypes (e.g. {@code image/*}) or {@code *} for everything else.
+     */
+    private Map<String, Long> contentMaxAge = new HashMap<>();
+
+    /**
+     * Total number of bytes of small content files kept in (off-heap) memory. Zero disables the content cache.
+     */
+    private long contentCacheSize = 64 * 1024 * 1024;
+
+    /**
+     * Maximum size in bytes of a content file kept in memory.
+     */
+    private long contentCacheThreshold = 256 * 1024;
+
+    /**
+     * Content types by file extension; these take precedence over the built-in ones.
+     */
+    private Map<String, String> mimeTypes = new HashMap<>();
+
+    /**
+     * Whether gzip variants of compressible content are generated in the background when first requested.
+     */
+    private boolean compressContent = true;
+
+    /**
+     * Sizes in pixels of the downscaled levels of detail generated for images.
+     */
+    private List<Integer> lodLevels = new ArrayList<>(LevelsOfDetail.DEFAULT_LEVELS);
+
+    /**
+     * Number of threads that generate levels of detail. Zero disables levels of detail.
+     */
+    private int lodThreads = 2;
+
+    /**
+     * Maximum size in bytes of a file uploaded through the streaming upload endpoint.
+     */
+    private long maxUploadSize = 1024L * 1024 * 1024;
+
+    /**
+     * Number of seconds after which idle resumable upload sessions are discarded.
+     */
+    private long uploadSessionTimeout = 24 * 60 * 60;
+
+    /**
+     * Whether exhibitions are loaded with the asynchronous database driver, releasing the request thread while the database is queried.
+     */
+    private boolean asyncLoading = false;
+
+    /**
+     * Number of threads that complete asynchronously loaded responses.
+     */
+    private int asyncThreads = 8;
+
+    /**
+     * Seconds after which an asynchronously loaded exhibition is answered with 503.
+     */
+    private long asyncTimeout = 30;
+
+    /**
+     * Directory that holds uploads in progress. Must not be below the document root, so that incomplete uploads are never served or watched. Defaults to a sibling of the document root, which is usually on the same file system.
+     */
+    private String uploadDirectory;
+
     public Path getDocumentRoot() {
         return Paths.get(documentRoot);
     }
 
+    /**
+     * Returns the directory that holds uploads in progress, see {@link #uploadDirectory}.
+     */
+    public Path getUploadDirectory() {
+        if (uploadDirectory != null) {
+            return Paths.get(uploadDirectory);
+        }
+        final Path docRoot = getDocumentRoot().toAbsolutePath().normalize();
+        if (docRoot.getFileName() == null) {
+            return Paths.get(System.getProperty("java.io.tmpdir"), "vrem-uploads");
+        }
+        return docRoot.resolveSibling(docRoot.getFileName() + ".uploads");
+    }
+
     public short getPort() {
         return port;
     }
 
+    public int getExhibitionCacheSize() {
+        return exhibitionCacheSize;
+    }
+
+    public Map<String, Long> getContentMaxAge() {
+        return contentMaxAge;
+    }
+
+    public long getContentCacheSize() {
+        return contentCacheSize;
+    }
+
+    public long getContentCacheThreshold() {
+        return contentCacheThreshold;
+    }
+
+    public Map<String, String> getMimeTypes() {
+        return mimeTypes;
+    }
+
+    public boolean isCompressContent() {
+        return compressContent;
+    }
+
+    public List<Integer> getLodLevels() {
+        return lodLevels;
+    }
+
+    public int getLodThreads() {
+        return lodThreads;
+    }
+
+    public long getMaxUploadSize() {
+        return maxUploadSize;
+    }
+
+    public long getUploadSessionTimeout() {
+        return uploadSessionTimeout;
+    }
+
+    public boolean isAsyncLoading() {
+        return asyncLoading;
+    }
+
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
 
 }
@@ -0,0 +1,50 @@
+package ch.unibas.dmi.dbis.vrem.database;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ch.unibas.dmi.dbis.vrem.config.Config;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMDao;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import com.google.gson.Gson;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import org.bson.Document;
+
+/**
+ * Ensures the {@link VREMIndexes} and reports how often each index of the VREM collections has been used since the server was started, as reported by {@code $indexStats}.
+ */
+@Command(name = "indexes", description = "Ensure the required indexes and report their usage statistics")
+public class IndexCommand implements Runnable {
+
+    @Option(title = "Configuration", name = {"--config", "-c"}, description = "Path to configuration file")
+    @Required
+    private String config;
+
+    @Override
+    public void run() {
+        try {
+            final String json = new String(Files.readAllBytes(Paths.get(this.config)), UTF_8);
+            final Config config = new Gson().fromJson(json, Config.class);
+            final MongoDatabase db = VREMDatabase.connect(config.database);
+            VREMIndexes.ensure(db);
+
+            System.out.println(String.format("%-12s %-20s %12s  %s", "COLLECTION", "INDEX", "OPERATIONS", "SINCE"));
+            for (String name : Arrays.asList(VREMDao.EXHIBITION_COLLECTION, VREMDao.CORPUS_COLLECTION)) {
+                final MongoCollection<Document> collection = db.getCollection(name);
+                for (Document stats : collection.aggregate(Collections.singletonList(new Document("$indexStats", new Document())))) {
+                    final Document accesses = stats.get("accesses", Document.class);
+                    System.out.println(String.format("%-12s %-20s %12s  %s", name, stats.getString("name"), accesses.get("ops"), accesses.getDate("since")));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ch.unibas.dmi.dbis.vrem.database;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ch.unibas.dmi.dbis.vrem.config.Config;
+import ch.unibas.dmi.dbis.vrem.database.codec.ExhibitionCodec;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMDao;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import com.google.gson.Gson;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.result.UpdateResult;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt64;
+import org.bson.Document;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * Measures the latency of saving an {@link Exhibition} with the statements used before and since saves became a single upsert: a replace that is followed by an insert if it didn't match, versus a single upsert that sets all fields and increments the version. Both run on a copy of an existing {@link Exhibition} in a scratch collection, which is dropped afterwards.
+ */
+@Command(name = "benchmark-save", description = "Measure the latency of saving exhibitions")
+public class SaveBenchmarkCommand implements Runnable {
+
+    /**
+     * Name of the scratch collection the benchmark writes to.
+     */
+    private static final String SCRATCH_COLLECTION = "benchmark_exhibitions";
+
+    @Option(title = "Configuration", name = {"--config", "-c"}, description = "Path to configuration file")
+    @Required
+    private String config;
+
+    @Option(title = "Exhibition", name = {"--exhibition", "-e"}, description = "Id of the exhibition to save; defaults to the first stored exhibition")
+    private String exhibition;
+
+    @Option(title = "Iterations", name = {"--iterations", "-n"}, description = "Number of measured saves per statement (default: 200)")
+    private int iterations = 200;
+
+    @Override
+    public void run() {
+        try {
+            final String json = new String(Files.readAllBytes(Paths.get(this.config)), UTF_8);
+            final Config config = new Gson().fromJson(json, Config.class);
+            final MongoDatabase db = VREMDatabase.connect(config.database);
+            final MongoCollection<Exhibition> exhibitions = db.getCollection(VREMDao.EXHIBITION_COLLECTION, Exhibition.class);
+            final Exhibition template = this.exhibition == null ? exhibitions.find().first() : exhibitions.find(Filters.eq(ExhibitionCodec.FIELD_NAME_ID, new ObjectId(this.exhibition))).first();
+            if (template == null) {
+                System.err.println("No exhibition found to save.");
+                return;
+            }
+
+            final MongoCollection<Exhibition> scratch = db.getCollection(SCRATCH_COLLECTION, Exhibition.class);
+            scratch.drop();
+            try {
+                System.out.println(String.format("%-30s %10s %10s %10s %10s", "STATEMENT", "MEAN (ms)", "P50 (ms)", "P95 (ms)", "MAX (ms)"));
+
+                /* New exhibitions: the replace doesn't match, so the legacy path needs a second round trip. */
+                report("insert: replace + insert", measure(() -> copy(template), e -> legacy(scratch, e)));
+                report("insert: upsert", measure(() -> copy(template), e -> upsert(scratch, e)));
+
+                /* Existing exhibitions: both paths replace the stored document. */
+                final Exhibition existing = copy(template);
+                scratch.insertOne(existing);
+                report("replace: replace + insert", measure(() -> existing, e -> legacy(scratch, e)));
+                report("replace: upsert", measure(() -> existing, e -> upsert(scratch, e)));
+            } finally {
+                scratch.drop();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves the given {@link Exhibition} the way it was saved before: replace it and insert it if nothing matched.
+     */
+    private static void legacy(MongoCollection<Exhibition> collection, Exhibition exhibition) {
+        final UpdateResult result = collection.replaceOne(Filters.eq(ExhibitionCodec.FIELD_NAME_ID, exhibition.id), exhibition);
+        if (result.getMatchedCount() == 0) {
+            collection.insertOne(exhibition);
+        }
+    }
+
+    /**
+     * Saves the given {@link Exhibition} the way {@link ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter#saveExhibition(Exhibition)} does: a single upsert that sets all fields and increments the version.
+     */
+    private static void upsert(MongoCollection<Exhibition> collection, Exhibition exhibition) {
+        final BsonDocument fields = new BsonDocument();
+        collection.getCodecRegistry().get(Exhibition.class).encode(new BsonDocumentWriter(fields), exhibition, EncoderContext.builder().build());
+        fields.remove(ExhibitionCodec.FIELD_NAME_ID);
+        fields.remove(ExhibitionCodec.FIELD_NAME_VERSION);
+        final BsonDocument update = new BsonDocument("$set", fields).append("$inc", new BsonDocument(ExhibitionCodec.FIELD_NAME_VERSION, new BsonInt64(1)));
+        final Document stored = collection.withDocumentClass(Document.class).findOneAndUpdate(Filters.eq(ExhibitionCodec.FIELD_NAME_ID, exhibition.id), update, new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER).projection(Projections.include(ExhibitionCodec.FIELD_NAME_VERSION)));
+        exhibition.version = stored.get(ExhibitionCodec.FIELD_NAME_VERSION, Number.class).longValue();
+    }
+
+    /**
+     * Copies the given {@link Exhibition} under a new id, at version 0.
+     */
+    private static Exhibition copy(Exhibition template) {
+        final Exhibition copy = new Exhibition(new ObjectId(), template.name, template.description);
+        template.getRooms().forEach(copy::addRoom);
+        template.getCorridors().forEach(copy::addCorridor);
+        return copy;
+    }
+
+    /**
+     * Saves the supplied {@link Exhibition}s and returns the latency of each save in nanoseconds, sorted. A tenth of the iterations is run beforehand to warm up the connection pool and is not measured.
+     */
+    private long[] measure(Supplier<Exhibition> supplier, Consumer<Exhibition> save) {
+        for (int i = 0; i < this.iterations / 10; i++) {
+            save.accept(supplier.get());
+        }
+        final long[] latencies = new long[this.iterations];
+        for (int i = 0; i < this.iterations; i++) {
+            final Exhibition exhibition = supplier.get();
+            final long start = System.nanoTime();
+            save.accept(exhibition);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    /**
+     * Prints mean, median, 95th percentile and maximum of the given, sorted latencies.
+     */
+    private static void report(String statement, long[] latencies) {
+        if (latencies.length == 0) {
+            return;
+        }
+        final double mean = Arrays.stream(latencies).average().orElse(0) / 1000000.0;
+        final double p50 = latencies[latencies.length / 2] / 1000000.0;
+        final double p95 = latencies[Math.min(latencies.length - 1, (int) Math.ceil(latencies.length * 0.95) - 1)] / 1000000.0;
+        final double max = latencies[latencies.length - 1] / 1000000.0;
+        System.out.println(String.format("%-30s %10.2f %10.2f %10.2f %10.2f", statement, mean, p50, p95, max));
+    }
+}
@@ -0,0 +1,47 @@
+package ch.unibas.dmi.dbis.vrem.database;
+
+import ch.unibas.dmi.dbis.vrem.config.DatabaseConfig;
+import ch.unibas.dmi.dbis.vrem.database.codec.VREMCodecProvider;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Creates the connection to the VREM database, so that all commands use the same codecs and client settings.
+ */
+public final class VREMDatabase {
+
+    private VREMDatabase() {
+    }
+
+    /**
+     * Connects to the database described by the given {@link DatabaseConfig}.
+     *
+     * @return {@link MongoDatabase} that uses the VREM codecs.
+     */
+    public static MongoDatabase connect(DatabaseConfig config) {
+        final MongoClient client = MongoClients.create(settings(config));
+        return client.getDatabase(config.database);
+    }
+
+    /**
+     * Connects to the database described by the given {@link DatabaseConfig} using the asynchronous driver, whose operations don't block the calling thread.
+     *
+     * @return {@link com.mongodb.async.client.MongoDatabase} that uses the VREM codecs.
+     */
+    public static com.mongodb.async.client.MongoDatabase connectAsync(DatabaseConfig config) {
+        final com.mongodb.async.client.MongoClient client = com.mongodb.async.client.MongoClients.create(settings(config));
+        return client.getDatabase(config.database);
+    }
+
+    /**
+     * Returns the {@link MongoClientSettings} shared by the synchronous and the asynchronous client.
+     */
+    private static MongoClientSettings settings(DatabaseConfig config) {
+        final CodecRegistry registry = CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), CodecRegistries.fromProviders(new VREMCodecProvider()));
+        return config.apply(MongoClientSettings.builder().codecRegistry(registry)).applicationName("VREM").build();
+    }
+}
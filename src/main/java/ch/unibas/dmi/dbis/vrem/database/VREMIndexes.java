@@ -0,0 +1,72 @@
+package ch.unibas.dmi.dbis.vrem.database;
+
+import ch.unibas.dmi.dbis.vrem.database.codec.ArtCollectionCodec;
+import ch.unibas.dmi.dbis.vrem.database.codec.ExhibitionCodec;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMDao;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.conversions.Bson;
+
+/**
+ * The secondary indexes required by VREM. They are created on startup if missing; creating an existing index is a no-op.
+ */
+public final class VREMIndexes {
+
+    private static final Logger LOGGER = LogManager.getLogger(VREMIndexes.class);
+
+    /**
+     * Name of the unique index on exhibition names.
+     */
+    public static final String EXHIBITION_NAME = "name_unique";
+
+    /**
+     * All required indexes.
+     */
+    public static final List<Index> INDEXES = Arrays.asList(
+        new Index(VREMDao.EXHIBITION_COLLECTION, Indexes.ascending(ExhibitionCodec.FIELD_NAME_NAME), new IndexOptions().name(EXHIBITION_NAME).unique(true)),
+        new Index(VREMDao.EXHIBITION_COLLECTION, Indexes.ascending("rooms.exhibits.path"), new IndexOptions().name("room_exhibit_path")),
+        new Index(VREMDao.EXHIBITION_COLLECTION, Indexes.ascending("rooms.walls.exhibits.path"), new IndexOptions().name("wall_exhibit_path")),
+        new Index(VREMDao.CORPUS_COLLECTION, Indexes.ascending(ArtCollectionCodec.FIELD_NAME_NAME), new IndexOptions().name("name")),
+        new Index(VREMDao.CORPUS_COLLECTION, Indexes.ascending(ArtCollectionCodec.FIELD_NAME_EXHIBITS + ".path"), new IndexOptions().name("exhibit_path"))
+    );
+
+    private VREMIndexes() {
+    }
+
+    /**
+     * Creates all missing indexes. Failures (e.g. duplicate exhibition names preventing the unique index) are logged, but don't prevent startup.
+     */
+    public static void ensure(MongoDatabase database) {
+        for (Index index : INDEXES) {
+            try {
+                database.getCollection(index.collection).createIndex(index.keys, index.options);
+            } catch (MongoException e) {
+                LOGGER.error("Could not create index {} on {}: {}", index.options.getName(), index.collection, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * An index on one of the VREM collections.
+     */
+    public static class Index {
+
+        public final String collection;
+
+        public final Bson keys;
+
+        public final IndexOptions options;
+
+        private Index(String collection, Bson keys, IndexOptions options) {
+            this.collection = collection;
+            this.keys = keys;
+            this.options = options;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.bson.types.ObjectId;
 
 public class ExhibitCodec implements Codec<Exhibit> {
 
+    public static final String FIELD_NAME_ID = "_id";
     public final String FIELD_NAME_NAME = "name";
     private final String FIELD_NAME_DESCRIPTION = "description";
     private final String FIELD_NAME_TYPE = "type";
@@ -48,6 +49,9 @@ public class ExhibitCodec implements Codec<Exhibit> {
 
         while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
             switch (reader.readName()) {
+                case FIELD_NAME_ID:
+                    id = reader.readObjectId();
+                    break;
                 case FIELD_NAME_NAME:
                     name = reader.readString();
                     break;
@@ -87,6 +91,7 @@ public class ExhibitCodec implements Codec<Exhibit> {
     @Override
     public void encode(BsonWriter writer, Exhibit value, EncoderContext encoderContext) {
         writer.writeStartDocument();
+        writer.writeObjectId(FIELD_NAME_ID, new ObjectId(value.id));
         writer.writeString(FIELD_NAME_NAME, value.name);
         writer.writeString(FIELD_NAME_DESCRIPTION, value.description);
         writer.writeString(FIELD_NAME_TYPE, value.type.name());
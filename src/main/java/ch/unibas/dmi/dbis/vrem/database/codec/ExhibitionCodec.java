@@ -20,6 +20,7 @@ public class ExhibitionCodec implements Codec<Exhibition> {
     public static final String FIELD_NAME_ID = "_id";
     public static final String FIELD_NAME_NAME = "name";
     public static final String FIELD_NAME_DESCRIPTION = "description";
+    public static final String FIELD_NAME_VERSION = "version";
     public static final String FIELD_NAME_ROOMS = "rooms";
     public static final String FIELD_NAME_CORRIDORS = "corridors";
 
@@ -37,6 +38,7 @@ public class ExhibitionCodec implements Codec<Exhibition> {
         ObjectId id = null;
         String name = null;
         String description = null;
+        long version = 0;
         List<Room> rooms = new LinkedList<>();
         List<Corridor> corridors = new LinkedList<>();
 
@@ -51,6 +53,9 @@ public class ExhibitionCodec implements Codec<Exhibition> {
                 case FIELD_NAME_DESCRIPTION:
                     description = reader.readString();
                     break;
+                case FIELD_NAME_VERSION:
+                    version = reader.getCurrentBsonType() == BsonType.INT32 ? reader.readInt32() : reader.readInt64();
+                    break;
                 case FIELD_NAME_ROOMS:
                     reader.readStartArray();
                     while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
@@ -72,6 +77,7 @@ public class ExhibitionCodec implements Codec<Exhibition> {
         }
         reader.readEndDocument();
         final Exhibition exhibition = new Exhibition(id, name, description);
+        exhibition.version = version;
 
         for (Room room : rooms) {
             exhibition.addRoom(room);
@@ -90,6 +96,7 @@ public class ExhibitionCodec implements Codec<Exhibition> {
         writer.writeObjectId(FIELD_NAME_ID, value.id);
         writer.writeString(FIELD_NAME_NAME, value.name);
         writer.writeString(FIELD_NAME_DESCRIPTION, value.description);
+        writer.writeInt64(FIELD_NAME_VERSION, value.version);
         writer.writeName(FIELD_NAME_ROOMS);
         writer.writeStartArray();
         for (Room room : value.getRooms()) {
@@ -0,0 +1,117 @@
+package ch.unibas.dmi.dbis.vrem.database.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Predicate;
+
+/**
+ * Describes a single page of a listing that uses keyset pagination: entries are ordered by a sort key and a unique tiebreaker, and a page starts right after the entry identified by an opaque cursor.
+ */
+public class PageRequest {
+
+    /**
+     * Separates sort key and tiebreaker in a decoded cursor.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Precedes a present sort key in a decoded cursor, so that an empty key can be told apart from a missing one.
+     */
+    private static final char KEY_PREFIX = '=';
+
+    /**
+     * Name of the sort key.
+     */
+    public final String sort;
+
+    /**
+     * True if entries are listed in descending order.
+     */
+    public final boolean descending;
+
+    /**
+     * Maximum number of entries on the page; 0 means unlimited.
+     */
+    public final int limit;
+
+    /**
+     * Sort key of the last entry on the previous page. NULL for the first page or if that entry had no sort key.
+     */
+    public final String afterKey;
+
+    /**
+     * Tiebreaker of the last entry on the previous page. NULL for the first page.
+     */
+    public final String afterTiebreaker;
+
+    /**
+     * @param sort Name of the sort key.
+     * @param descending True if entries are listed in descending order.
+     * @param limit Maximum number of entries on the page; 0 means unlimited.
+     * @param cursor Cursor returned with the previous page. May be NULL!
+     * @throws IllegalArgumentException If the limit is negative or the cursor is malformed.
+     */
+    public PageRequest(String sort, boolean descending, int limit, String cursor) {
+        this(sort, descending, limit, cursor, tiebreaker -> true);
+    }
+
+    /**
+     * @param sort Name of the sort key.
+     * @param descending True if entries are listed in descending order.
+     * @param limit Maximum number of entries on the page; 0 means unlimited.
+     * @param cursor Cursor returned with the previous page. May be NULL!
+     * @param tiebreaker Tests if a decoded tiebreaker is valid for the listing, e.g. a well-formed id.
+     * @throws IllegalArgumentException If the limit is negative or the cursor is malformed.
+     */
+    public PageRequest(String sort, boolean descending, int limit, String cursor, Predicate<String> tiebreaker) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit must not be negative.");
+        }
+        this.sort = sort;
+        this.descending = descending;
+        this.limit = limit;
+        if (cursor == null || cursor.isEmpty()) {
+            this.afterKey = null;
+            this.afterTiebreaker = null;
+            return;
+        }
+        final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        final int separator = decoded.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor '" + cursor + "'.");
+        }
+        if (separator > 0 && decoded.charAt(0) != KEY_PREFIX) {
+            throw new IllegalArgumentException("Malformed cursor '" + cursor + "'.");
+        }
+        this.afterKey = separator == 0 ? null : decoded.substring(1, separator);
+        this.afterTiebreaker = decoded.substring(separator + 1);
+        if (!tiebreaker.test(this.afterTiebreaker)) {
+            throw new IllegalArgumentException("Malformed cursor '" + cursor + "'.");
+        }
+    }
+
+    /**
+     * Returns true if this is the first page.
+     */
+    public boolean isFirst() {
+        return this.afterTiebreaker == null;
+    }
+
+    /**
+     * Returns true if the number of entries on this page is limited.
+     */
+    public boolean isLimited() {
+        return this.limit > 0;
+    }
+
+    /**
+     * Returns the opaque cursor that identifies an entry; the page following that entry is requested with it.
+     *
+     * @param key Sort key of the entry. May be NULL!
+     * @param tiebreaker Unique tiebreaker of the entry.
+     */
+    public static String cursor(String key, String tiebreaker) {
+        final String decoded = (key == null ? "" : KEY_PREFIX + key) + SEPARATOR + tiebreaker;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+    }
+}
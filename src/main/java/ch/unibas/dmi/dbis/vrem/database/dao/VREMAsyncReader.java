@@ -0,0 +1,89 @@
+package ch.unibas.dmi.dbis.vrem.database.dao;
+
+import ch.unibas.dmi.dbis.vrem.cache.ExhibitionCache;
+import ch.unibas.dmi.dbis.vrem.database.codec.ExhibitionCodec;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import com.mongodb.async.client.MongoCollection;
+import com.mongodb.async.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import java.util.concurrent.CompletableFuture;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+/**
+ * Non-blocking counterpart of {@link VREMReader} for the hot read paths. It uses the asynchronous driver, so that no request thread waits for the database; results are delivered as {@link CompletableFuture}s, which complete on a driver thread.
+ */
+public class VREMAsyncReader {
+
+    private final MongoDatabase database;
+
+    /**
+     * Optional cache for decoded {@link Exhibition}s; usually shared with the {@link VREMReader}. May be NULL!
+     */
+    private final ExhibitionCache cache;
+
+    /**
+     * Optional cache for decoded skeletons; usually shared with the {@link VREMReader}. May be NULL!
+     */
+    private final ExhibitionCache skeletons;
+
+    /**
+     * @param cache {@link ExhibitionCache} used to serve {@link #getExhibition(String)} and {@link #getExhibition(ObjectId)}. May be NULL!
+     * @param skeletons {@link ExhibitionCache} used to serve {@link #getSkeleton(String)} and {@link #getSkeleton(ObjectId)}. May be NULL!
+     */
+    public VREMAsyncReader(MongoDatabase database, ExhibitionCache cache, ExhibitionCache skeletons) {
+        this.database = database;
+        this.cache = cache;
+        this.skeletons = skeletons;
+    }
+
+    public CompletableFuture<Exhibition> getExhibition(String name) {
+        if (this.cache != null) {
+            return this.cache.getAsync(name, () -> getExhibition(ExhibitionCodec.FIELD_NAME_NAME, name, null));
+        }
+        return getExhibition(ExhibitionCodec.FIELD_NAME_NAME, name, null);
+    }
+
+    public CompletableFuture<Exhibition> getExhibition(ObjectId id) {
+        if (this.cache != null) {
+            return this.cache.getAsync(id, () -> getExhibition(ExhibitionCodec.FIELD_NAME_ID, id, null));
+        }
+        return getExhibition(ExhibitionCodec.FIELD_NAME_ID, id, null);
+    }
+
+    /**
+     * Loads the skeleton of the {@link Exhibition} with the given name, see {@link VREMReader#SKELETON}. Skeletons must not be saved!
+     */
+    public CompletableFuture<Exhibition> getSkeleton(String name) {
+        if (this.skeletons != null) {
+            return this.skeletons.getAsync(name, () -> getExhibition(ExhibitionCodec.FIELD_NAME_NAME, name, VREMReader.SKELETON));
+        }
+        return getExhibition(ExhibitionCodec.FIELD_NAME_NAME, name, VREMReader.SKELETON);
+    }
+
+    /**
+     * Loads the skeleton of the {@link Exhibition} with the given id, see {@link VREMReader#SKELETON}. Skeletons must not be saved!
+     */
+    public CompletableFuture<Exhibition> getSkeleton(ObjectId id) {
+        if (this.skeletons != null) {
+            return this.skeletons.getAsync(id, () -> getExhibition(ExhibitionCodec.FIELD_NAME_ID, id, VREMReader.SKELETON));
+        }
+        return getExhibition(ExhibitionCodec.FIELD_NAME_ID, id, VREMReader.SKELETON);
+    }
+
+    /**
+     * Starts loading a single {@link Exhibition}; the returned future completes with NULL if there is no match.
+     */
+    private CompletableFuture<Exhibition> getExhibition(String fieldName, Object key, Bson projection) {
+        final MongoCollection<Exhibition> exhibitions = this.database.getCollection(VREMDao.EXHIBITION_COLLECTION, Exhibition.class);
+        final CompletableFuture<Exhibition> future = new CompletableFuture<>();
+        exhibitions.find(Filters.eq(fieldName, key)).projection(projection).first((exhibition, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(exhibition);
+            }
+        });
+        return future;
+    }
+}
@@ -1,43 +1,200 @@
 package ch.unibas.dmi.dbis.vrem.database.dao;
 
+import ch.unibas.dmi.dbis.vrem.cache.ExhibitCatalog;
+import ch.unibas.dmi.dbis.vrem.cache.ExhibitionCache;
 import ch.unibas.dmi.dbis.vrem.database.codec.ArtCollectionCodec;
 import ch.unibas.dmi.dbis.vrem.database.codec.ExhibitionCodec;
+import ch.unibas.dmi.dbis.vrem.model.Vector3f;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.ExhibitionSummary;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.RoomSummary;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.polygonal.Room;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 public class VREMReader extends VREMDao {
 
+    /**
+     * Sort keys supported by {@link #listExhibitions(PageRequest)} and {@link #listExhibits(PageRequest)}.
+     */
+    public static final String SORT_ID = "id";
+    public static final String SORT_NAME = "name";
+    public static final String SORT_PATH = "path";
+
+    /**
+     * Projection used to load skeletons, i.e. {@link Exhibition}s without the descriptions of their {@link Exhibit}s. Those are not needed to build the geometry and make up most of a document.
+     */
+    public static final Bson SKELETON = Projections.exclude("rooms.exhibits.description", "rooms.walls.exhibits.description", "corridors.exhibits.description", "corridors.walls.exhibits.description");
+
+    /**
+     * Optional cache for decoded {@link Exhibition}s. May be NULL!
+     */
+    private final ExhibitionCache cache;
+
+    /**
+     * Optional cache for decoded skeletons. May be NULL!
+     */
+    private final ExhibitionCache skeletons;
+
+    /**
+     * Optional index of all {@link Exhibit}s. May be NULL!
+     */
+    private final ExhibitCatalog catalog;
+
     /**
      *
      */
     public VREMReader(MongoDatabase database) {
+        this(database, null, null, null);
+    }
+
+    /**
+     * @param cache {@link ExhibitionCache} used to serve {@link #getExhibition(String)} and {@link #getExhibition(ObjectId)}. May be NULL!
+     * @param skeletons {@link ExhibitionCache} used to serve {@link #getSkeleton(String)} and {@link #getSkeleton(ObjectId)}. May be NULL!
+     * @param catalog {@link ExhibitCatalog} used to serve {@link #listExhibits()}; it is built by {@link #rebuildCatalog()}. May be NULL!
+     */
+    public VREMReader(MongoDatabase database, ExhibitionCache cache, ExhibitionCache skeletons, ExhibitCatalog catalog) {
         super(database);
+        this.cache = cache;
+        this.skeletons = skeletons;
+        this.catalog = catalog;
     }
 
 
     public Exhibition getExhibition(String name) {
+        if (this.cache != null) {
+            return this.cache.get(name, () -> getExhibition(ExhibitionCodec.FIELD_NAME_NAME, name));
+        }
         return getExhibition(ExhibitionCodec.FIELD_NAME_NAME, name);
     }
 
     public Exhibition getExhibition(ObjectId id) {
+        if (this.cache != null) {
+            return this.cache.get(id, () -> getExhibition(ExhibitionCodec.FIELD_NAME_ID, id));
+        }
         return getExhibition(ExhibitionCodec.FIELD_NAME_ID, id);
     }
 
+    /**
+     * Loads the skeleton of the {@link Exhibition} with the given name, see {@link #SKELETON}. Skeletons must not be saved!
+     */
+    public Exhibition getSkeleton(String name) {
+        if (this.skeletons != null) {
+            return this.skeletons.get(name, () -> getExhibition(ExhibitionCodec.FIELD_NAME_NAME, name, SKELETON));
+        }
+        return getExhibition(ExhibitionCodec.FIELD_NAME_NAME, name, SKELETON);
+    }
+
+    /**
+     * Loads the skeleton of the {@link Exhibition} with the given id, see {@link #SKELETON}. Skeletons must not be saved!
+     */
+    public Exhibition getSkeleton(ObjectId id) {
+        if (this.skeletons != null) {
+            return this.skeletons.get(id, () -> getExhibition(ExhibitionCodec.FIELD_NAME_ID, id, SKELETON));
+        }
+        return getExhibition(ExhibitionCodec.FIELD_NAME_ID, id, SKELETON);
+    }
+
+    /**
+     * Returns the current {@link Exhibition#version} of an {@link Exhibition} without loading it. Always reads from the primary, since it is used to check the outcome of writes.
+     *
+     * @return The version or NULL, if no such {@link Exhibition} exists.
+     */
+    public Long getVersion(ObjectId id) {
+        final MongoCollection<Document> exhibitions = this.database.getCollection(EXHIBITION_COLLECTION).withReadPreference(ReadPreference.primary());
+        final Document document = exhibitions.find(Filters.eq(ExhibitionCodec.FIELD_NAME_ID, id)).projection(Projections.include(ExhibitionCodec.FIELD_NAME_VERSION)).first();
+        if (document == null) {
+            return null;
+        }
+        final Number version = document.get(ExhibitionCodec.FIELD_NAME_VERSION, Number.class);
+        return version == null ? 0L : version.longValue();
+    }
+
     private Exhibition getExhibition(String fieldName, Object key) {
+        return getExhibition(fieldName, key, null);
+    }
+
+    private Exhibition getExhibition(String fieldName, Object key, Bson projection) {
         final MongoCollection<Exhibition> exhibitions = this.database.getCollection(EXHIBITION_COLLECTION, Exhibition.class);
-        return exhibitions.find(Filters.eq(fieldName, key)).first();
+        return exhibitions.find(Filters.eq(fieldName, key)).projection(projection).first();
+    }
+
+    /**
+     * Lists the rooms of an {@link Exhibition} without loading them; only the summaries are computed by the database.
+     *
+     * @param id The {@link ObjectId} of the {@link Exhibition}.
+     * @return List of {@link RoomSummary}s or NULL, if no such {@link Exhibition} exists.
+     */
+    public List<RoomSummary> listRooms(ObjectId id) {
+        final MongoCollection<Document> exhibitions = database.getCollection(EXHIBITION_COLLECTION);
+        final Document summary = new Document("text", "$$room.text")
+            .append("position", "$$room.position")
+            .append("height", "$$room.height")
+            .append("walls", new Document("$size", new Document("$ifNull", Arrays.asList("$$room.walls", Collections.emptyList()))))
+            .append("exhibits", new Document("$add", Arrays.asList(
+                new Document("$size", new Document("$ifNull", Arrays.asList("$$room.exhibits", Collections.emptyList()))),
+                new Document("$sum", new Document("$map", new Document("input", new Document("$ifNull", Arrays.asList("$$room.walls", Collections.emptyList())))
+                    .append("as", "wall")
+                    .append("in", new Document("$size", new Document("$ifNull", Arrays.asList("$$wall.exhibits", Collections.emptyList())))))))));
+        final Document rooms = new Document("$map", new Document("input", new Document("$ifNull", Arrays.asList("$" + ExhibitionCodec.FIELD_NAME_ROOMS, Collections.emptyList())))
+            .append("as", "room")
+            .append("in", summary));
+        final Document document = exhibitions.aggregate(Arrays.asList(
+            Aggregates.match(Filters.eq(ExhibitionCodec.FIELD_NAME_ID, id)),
+            Aggregates.project(new Document(ExhibitionCodec.FIELD_NAME_ROOMS, rooms))
+        )).first();
+        if (document == null) {
+            return null;
+        }
+        final List<RoomSummary> list = new ArrayList<>();
+        for (Object element : document.get(ExhibitionCodec.FIELD_NAME_ROOMS, List.class)) {
+            final Document room = (Document) element;
+            final Document position = room.get("position", Document.class);
+            final Number height = room.get("height", Number.class);
+            list.add(new RoomSummary(list.size(), room.getString("text"), position == null ? null : new Vector3f(position.getDouble("x").floatValue(), position.getDouble("y").floatValue(), position.getDouble("z").floatValue()), height == null ? 0.0 : height.doubleValue(), room.getInteger("walls"), room.getInteger("exhibits")));
+        }
+        return list;
+    }
+
+    /**
+     * Loads a single room of an {@link Exhibition} using a {@code $slice} projection, so that neither the database nor the server handle the other rooms.
+     *
+     * @param id The {@link ObjectId} of the {@link Exhibition}.
+     * @param index Position of the room within the {@link Exhibition}.
+     * @param skeleton True if the descriptions of exhibits should be left out, see {@link #SKELETON}.
+     * @return {@link Room} or NULL, if no such room exists.
+     */
+    public Room getRoom(ObjectId id, int index, boolean skeleton) {
+        final Bson slice = Projections.fields(Projections.slice(ExhibitionCodec.FIELD_NAME_ROOMS, index, 1), Projections.exclude(ExhibitionCodec.FIELD_NAME_CORRIDORS));
+        final Exhibition exhibition = getExhibition(ExhibitionCodec.FIELD_NAME_ID, id, slice);
+        if (exhibition == null || exhibition.getRooms().isEmpty()) {
+            return null;
+        }
+        final Room room = exhibition.getRooms().get(0);
+        if (skeleton) {
+            /* MongoDB 4.4+ rejects excluding paths below 'rooms' next to its $slice, so the descriptions are dropped after decoding. */
+            room.getExhibits().forEach(e -> e.description = null);
+            room.getWalls().forEach(w -> w.getExhibits().forEach(e -> e.description = null));
+        }
+        return room;
     }
 
     /**
@@ -52,7 +209,59 @@ public class VREMReader extends VREMDao {
         return list;
     }
 
+    /**
+     * Lists a single page of {@link ExhibitionSummary}s, sorted by name or id. The returned iterable is lazy, i.e. the database is queried once iteration starts.
+     *
+     * @param page {@link PageRequest} with sort key {@link #SORT_NAME} or {@link #SORT_ID}. If limited, one entry more than the limit is returned to indicate that further pages exist.
+     */
+    public MongoIterable<ExhibitionSummary> listExhibitions(PageRequest page) {
+        final MongoCollection<Document> exhibitions = database.getCollection(EXHIBITION_COLLECTION);
+        final String field = SORT_NAME.equals(page.sort) ? ExhibitionCodec.FIELD_NAME_NAME : ExhibitionCodec.FIELD_NAME_ID;
+        final Bson order = page.descending ? Sorts.descending(field, ExhibitionCodec.FIELD_NAME_ID) : Sorts.ascending(field, ExhibitionCodec.FIELD_NAME_ID);
+        final FindIterable<Document> documents = exhibitions.find(page.isFirst() ? new Document() : after(page, field))
+            .projection(Projections.include(ExhibitionCodec.FIELD_NAME_ID, ExhibitionCodec.FIELD_NAME_NAME))
+            .sort(order);
+        if (page.isLimited()) {
+            documents.limit(page.limit + 1);
+        }
+        return documents.map(document -> new ExhibitionSummary(document.getObjectId(ExhibitionCodec.FIELD_NAME_ID), document.getString(ExhibitionCodec.FIELD_NAME_NAME)));
+    }
+
+    /**
+     * Builds the keyset filter that selects all exhibitions following the cursor of the given {@link PageRequest}. Missing names sort before all other names.
+     */
+    private static Bson after(PageRequest page, String field) {
+        final ObjectId id = new ObjectId(page.afterTiebreaker);
+        final Bson next = page.descending ? Filters.lt(ExhibitionCodec.FIELD_NAME_ID, id) : Filters.gt(ExhibitionCodec.FIELD_NAME_ID, id);
+        if (field.equals(ExhibitionCodec.FIELD_NAME_ID)) {
+            return next;
+        }
+        if (page.afterKey == null) {
+            final Bson tied = Filters.and(Filters.eq(field, null), next);
+            return page.descending ? tied : Filters.or(tied, Filters.ne(field, null));
+        }
+        final Bson tied = Filters.and(Filters.eq(field, page.afterKey), next);
+        return page.descending ? Filters.or(Filters.lt(field, page.afterKey), tied, Filters.eq(field, null)) : Filters.or(Filters.gt(field, page.afterKey), tied);
+    }
+
+    /**
+     * Lists a single page of {@link Exhibit}s, sorted by path or name.
+     *
+     * @param page {@link PageRequest} with sort key {@link #SORT_PATH} or {@link #SORT_NAME}. If limited, one entry more than the limit is returned to indicate that further pages exist.
+     */
+    public List<Exhibit> listExhibits(PageRequest page) {
+        if (this.catalog != null) {
+            return this.catalog.list(page);
+        }
+        final ExhibitCatalog catalog = new ExhibitCatalog();
+        catalog.rebuild(Collections.emptyList(), listExhibits());
+        return catalog.list(page);
+    }
+
     public List<Exhibit> listExhibits() {
+        if (this.catalog != null) {
+            return this.catalog.list();
+        }
         // Get all Exhibits from all ArtCollections.
         final MongoCollection<Document> artCollections = database.getCollection(CORPUS_COLLECTION);
         final List<Exhibit> list = new ArrayList<>(listExhibitsFromExhibitions());
@@ -68,6 +277,16 @@ public class VREMReader extends VREMDao {
         exhibitions.find().forEach((Consumer<? super Exhibition>) e -> list.addAll(e.getExhibits()));
         return list;
     }
-}
-
 
+    /**
+     * Populates the {@link ExhibitCatalog} with all {@link Exhibit}s stored in the database. This requires a full scan and should only be done on startup.
+     */
+    public void rebuildCatalog() {
+        if (this.catalog == null) {
+            return;
+        }
+        final MongoCollection<Exhibition> exhibitions = database.getCollection(EXHIBITION_COLLECTION, Exhibition.class);
+        final MongoCollection<Document> artCollections = database.getCollection(CORPUS_COLLECTION);
+        this.catalog.rebuild(exhibitions.find(), artCollections.distinct(ArtCollectionCodec.FIELD_NAME_EXHIBITS, Exhibit.class));
+    }
+}
@@ -1,24 +1,49 @@
 package ch.unibas.dmi.dbis.vrem.database.dao;
 
+import ch.unibas.dmi.dbis.vrem.database.VREMIndexes;
 import ch.unibas.dmi.dbis.vrem.database.codec.ExhibitionCodec;
 import ch.unibas.dmi.dbis.vrem.model.collection.ArtCollection;
 import ch.unibas.dmi.dbis.vrem.model.collection.ExhibitUpload;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.ExhibitionPatch;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.polygonal.Wall;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoServerException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.UpdateResult;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt64;
+import org.bson.Document;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 
 public class VREMWriter extends VREMDao {
 
     private static final Logger LOGGER = LogManager.getLogger(VREMWriter.class);
 
+    /**
+     * {@link VREMWriterListener}s that are notified about completed writes.
+     */
+    private final List<VREMWriterListener> listeners = new CopyOnWriteArrayList<>();
+
     /**
      *
      */
@@ -27,27 +52,221 @@ public class VREMWriter extends VREMDao {
     }
 
     /**
+     * Registers a {@link VREMWriterListener} with this {@link VREMWriter}.
+     */
+    public void addListener(VREMWriterListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Stores the given {@link Exhibition}; it is replaced or, if it doesn't exist yet, inserted by a single upsert. The {@link Exhibition#version} sent by the client is ignored: the stored version is incremented by the server and copied to the given {@link Exhibition}.
      *
+     * @throws IllegalArgumentException If another {@link Exhibition} has the same name.
      */
-    public boolean saveExhibition(Exhibition exhibition) {
-        final MongoCollection<Exhibition> collection = this.database.getCollection(EXHIBITION_COLLECTION, Exhibition.class);
-        final UpdateResult result = collection.replaceOne(Filters.eq("_id", exhibition.id), exhibition);
-        if (result.getMatchedCount() == 0) {
-            collection.insertOne(exhibition);
-        } else if (result.getModifiedCount() == 0) {
+    public void saveExhibition(Exhibition exhibition) {
+        this.save(exhibition, null);
+    }
+
+    /**
+     * Stores the given {@link Exhibition} only if the stored one is still at the expected version; used by clients that opt into optimistic concurrency control. The version is incremented by the server and copied to the given {@link Exhibition}.
+     *
+     * @param expected Version the client's copy is based on.
+     * @return True if the {@link Exhibition} has been saved, false if it doesn't exist or has been changed since the expected version.
+     * @throws IllegalArgumentException If another {@link Exhibition} has the same name.
+     */
+    public boolean saveExhibition(Exhibition exhibition, long expected) {
+        return this.save(exhibition, expected);
+    }
+
+    /**
+     * Sets all fields of the stored {@link Exhibition} and increments its version in a single update.
+     *
+     * @param expected Expected version or NULL, if the {@link Exhibition} is saved unconditionally.
+     */
+    private boolean save(Exhibition exhibition, Long expected) {
+        final long start = System.nanoTime();
+        exhibition.getExhibits().forEach(VREMWriter::identify);
+        final MongoCollection<Document> collection = this.database.getCollection(EXHIBITION_COLLECTION);
+        final BsonDocument fields = new BsonDocument();
+        collection.getCodecRegistry().get(Exhibition.class).encode(new BsonDocumentWriter(fields), exhibition, EncoderContext.builder().build());
+        fields.remove(ExhibitionCodec.FIELD_NAME_ID);
+        fields.remove(ExhibitionCodec.FIELD_NAME_VERSION);
+        final BsonDocument update = new BsonDocument("$set", fields).append("$inc", new BsonDocument(ExhibitionCodec.FIELD_NAME_VERSION, new BsonInt64(1)));
+        final Bson filter = expected == null ? Filters.eq(ExhibitionCodec.FIELD_NAME_ID, exhibition.id) : versionFilter(exhibition.id, expected);
+        final Document stored;
+        try {
+            stored = collection.findOneAndUpdate(filter, update, new FindOneAndUpdateOptions().upsert(expected == null).returnDocument(ReturnDocument.AFTER).projection(Projections.include(ExhibitionCodec.FIELD_NAME_VERSION)));
+        } catch (MongoServerException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY && e.getMessage().contains(VREMIndexes.EXHIBITION_NAME)) {
+                throw new IllegalArgumentException("An exhibition named '" + exhibition.name + "' already exists.");
+            }
+            throw e;
+        }
+        if (stored == null) {
+            LOGGER.debug("Exhibition {} is no longer at version {}", exhibition.id, expected);
             return false;
         }
+        exhibition.version = stored.get(ExhibitionCodec.FIELD_NAME_VERSION, Number.class).longValue();
+        LOGGER.debug("Saved exhibition {} (version {}) in {} ms", exhibition.id, exhibition.version, (System.nanoTime() - start) / 1000000.0);
+        this.listeners.forEach(l -> l.onExhibitionSaved(exhibition));
         return true;
     }
 
+    /**
+     * Applies an {@link ExhibitionPatch} with a single, targeted update instead of replacing the whole document. The update only matches if the {@link Exhibition} is still at {@link ExhibitionPatch#version} and all addressed rooms, walls and exhibits exist; the version is incremented. Additions to the same array are pushed together; if an operation sets the same field twice, the last one wins.
+     *
+     * @param id The {@link ObjectId} of the {@link Exhibition} to patch.
+     * @param patch The {@link ExhibitionPatch} to apply.
+     * @return The updated {@link Exhibition} or NULL, if the update didn't match.
+     * @throws IllegalArgumentException If an operation lacks required fields or operations address conflicting paths.
+     */
+    public Exhibition patchExhibition(ObjectId id, ExhibitionPatch patch) {
+        final List<Bson> filters = new ArrayList<>();
+        final Map<String, Object> sets = new LinkedHashMap<>();
+        final Map<String, List<Object>> pushes = new LinkedHashMap<>();
+        filters.add(versionFilter(id, patch.version));
+        for (ExhibitionPatch.Operation operation : patch.operations) {
+            if (operation.op == null || operation.room == null) {
+                throw new IllegalArgumentException("Every operation requires 'op' and 'room'.");
+            }
+            final String room = ExhibitionCodec.FIELD_NAME_ROOMS + "." + operation.room;
+            final String container = operation.wall == null ? room : room + ".walls." + operation.wall;
+            switch (operation.op) {
+                case MOVE_EXHIBIT:
+                case RESIZE_EXHIBIT:
+                    final Object value = operation.op == ExhibitionPatch.Type.MOVE_EXHIBIT ? operation.position : operation.size;
+                    if (operation.exhibit == null || value == null) {
+                        throw new IllegalArgumentException("Operation " + operation.op + " requires 'exhibit' and '" + (operation.op == ExhibitionPatch.Type.MOVE_EXHIBIT ? "position" : "size") + "'.");
+                    }
+                    final String exhibit = container + ".exhibits." + operation.exhibit;
+                    filters.add(Filters.exists(exhibit));
+                    sets.put(exhibit + (operation.op == ExhibitionPatch.Type.MOVE_EXHIBIT ? ".position" : ".size"), value);
+                    break;
+                case ADD_EXHIBIT:
+                    if (operation.addedExhibit == null) {
+                        throw new IllegalArgumentException("Operation " + operation.op + " requires 'addedExhibit'.");
+                    }
+                    validate(operation.addedExhibit);
+                    identify(operation.addedExhibit);
+                    filters.add(Filters.exists(container));
+                    pushes.computeIfAbsent(container + ".exhibits", k -> new ArrayList<>()).add(operation.addedExhibit);
+                    break;
+                case ADD_WALL:
+                    if (operation.addedWall == null) {
+                        throw new IllegalArgumentException("Operation " + operation.op + " requires 'addedWall'.");
+                    }
+                    validate(operation.addedWall);
+                    operation.addedWall.getExhibits().forEach(VREMWriter::identify);
+                    filters.add(Filters.exists(room));
+                    pushes.computeIfAbsent(room + ".walls", k -> new ArrayList<>()).add(operation.addedWall);
+                    break;
+                case RETEXTURE_ROOM:
+                    if (operation.floor == null && operation.ceiling == null) {
+                        throw new IllegalArgumentException("Operation " + operation.op + " requires 'floor' or 'ceiling'.");
+                    }
+                    filters.add(Filters.exists(room));
+                    if (operation.floor != null) {
+                        sets.put(room + ".floor", operation.floor);
+                    }
+                    if (operation.ceiling != null) {
+                        sets.put(room + ".ceiling", operation.ceiling);
+                    }
+                    break;
+                case RETEXTURE_WALL:
+                    if (operation.wall == null || operation.texture == null) {
+                        throw new IllegalArgumentException("Operation " + operation.op + " requires 'wall' and 'texture'.");
+                    }
+                    filters.add(Filters.exists(container));
+                    sets.put(container + ".texture", operation.texture);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported operation " + operation.op + ".");
+            }
+        }
+
+        /* MongoDB rejects updates that modify a path and one of its parents, e.g. moving an exhibit of a wall that exhibits are added to. */
+        final List<String> paths = new ArrayList<>(sets.keySet());
+        paths.addAll(pushes.keySet());
+        for (int i = 0; i < paths.size(); i++) {
+            for (int j = i + 1; j < paths.size(); j++) {
+                final String path = paths.get(i);
+                final String other = paths.get(j);
+                if (path.equals(other) || other.startsWith(path + ".") || path.startsWith(other + ".")) {
+                    throw new IllegalArgumentException("Operations on '" + path + "' and '" + other + "' conflict and must be sent in separate patches.");
+                }
+            }
+        }
+        final List<Bson> updates = new ArrayList<>();
+        sets.forEach((path, value) -> updates.add(Updates.set(path, value)));
+        pushes.forEach((path, values) -> updates.add(Updates.pushEach(path, values)));
+        updates.add(Updates.inc(ExhibitionCodec.FIELD_NAME_VERSION, 1L));
+
+        final MongoCollection<Exhibition> collection = this.database.getCollection(EXHIBITION_COLLECTION, Exhibition.class);
+        final Exhibition exhibition = collection.findOneAndUpdate(Filters.and(filters), Updates.combine(updates), new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+        if (exhibition != null) {
+            this.listeners.forEach(l -> l.onExhibitionSaved(exhibition));
+        }
+        return exhibition;
+    }
+
+    /**
+     * Assigns a new id to an {@link Exhibit} that was sent without a (valid) one, so that the stored and the in-memory {@link Exhibit} have the same id.
+     */
+    private static void identify(Exhibit exhibit) {
+        if (exhibit.id == null || !ObjectId.isValid(exhibit.id)) {
+            exhibit.id = new ObjectId().toHexString();
+        }
+    }
+
+    /**
+     * Checks that an added {@link Exhibit} has all fields required to store it.
+     *
+     * @throws IllegalArgumentException If a required field is missing.
+     */
+    private static void validate(Exhibit exhibit) {
+        if (exhibit.name == null || exhibit.description == null || exhibit.path == null || exhibit.type == null || exhibit.position == null || exhibit.size == null) {
+            throw new IllegalArgumentException("Added exhibits require 'name', 'description', 'path', 'type', 'position' and 'size'.");
+        }
+    }
+
+    /**
+     * Checks that an added {@link Wall} and its {@link Exhibit}s have all fields required to store them.
+     *
+     * @throws IllegalArgumentException If a required field is missing.
+     */
+    private static void validate(Wall wall) {
+        if (wall.wallCoordinates == null || wall.wallCoordinates.contains(null) || wall.texture == null || wall.color == null) {
+            throw new IllegalArgumentException("Added walls require 'wallCoordinates', 'texture' and 'color'.");
+        }
+        wall.getExhibits().forEach(VREMWriter::validate);
+    }
+
+    /**
+     * Matches the {@link Exhibition} with the given id if it is at the given version; documents stored before versions were introduced are at version 0.
+     */
+    private static Bson versionFilter(ObjectId id, long version) {
+        final Bson versionFilter = version == 0 ? Filters.or(Filters.eq(ExhibitionCodec.FIELD_NAME_VERSION, 0), Filters.exists(ExhibitionCodec.FIELD_NAME_VERSION, false)) : Filters.eq(ExhibitionCodec.FIELD_NAME_VERSION, version);
+        return Filters.and(Filters.eq(ExhibitionCodec.FIELD_NAME_ID, id), versionFilter);
+    }
+
     public String uploadExhibit(ExhibitUpload exhibitUpload) {
+        return this.uploadExhibit(exhibitUpload, null);
+    }
+
+    /**
+     * Adds the uploaded {@link Exhibit} to its art collection.
+     *
+     * @param path Path of the stored file relative to the document root. If NULL, the file is expected in the art collection's directory, named after the exhibit's id.
+     * @return The path of the added {@link Exhibit}.
+     */
+    public String uploadExhibit(ExhibitUpload exhibitUpload, String path) {
         final MongoCollection<ArtCollection> mongoCollection = this.database.getCollection(CORPUS_COLLECTION, ArtCollection.class);
 
         // Construct new Exhibit to generate ID
         Exhibit to_add = new Exhibit(exhibitUpload.exhibit.name, exhibitUpload.exhibit.description, exhibitUpload.exhibit.path, exhibitUpload.exhibit.type, exhibitUpload.exhibit.position, exhibitUpload.exhibit.size, exhibitUpload.exhibit.audio, exhibitUpload.exhibit.light);
 
         // Construct Path with ID
-        to_add.path = exhibitUpload.artCollection + "/" + to_add.id + "." + exhibitUpload.fileExtension;
+        to_add.path = path != null ? path : exhibitUpload.artCollection + "/" + to_add.id + "." + exhibitUpload.fileExtension;
 
         if(mongoCollection.countDocuments() == 0){
             LOGGER.debug("There is no previous document in {} collection. We're adding one", CORPUS_COLLECTION);
@@ -58,8 +277,10 @@ public class VREMWriter extends VREMDao {
             UpdateResult result = mongoCollection.updateOne(Filters.eq("name", exhibitUpload.artCollection), Updates.push("exhibits", to_add));
             if(result.getMatchedCount() == 0){
                 LOGGER.error("Could not update the art collection");
+                return to_add.path;
             }
         }
+        this.listeners.forEach(l -> l.onExhibitUploaded(exhibitUpload.artCollection, to_add));
         return to_add.path;
 
     }
@@ -68,6 +289,14 @@ public class VREMWriter extends VREMDao {
      * @param key {@link ExhibitionCodec#FIELD_NAME_NAME} of the exhibition to be deleted. all exhibitions with said key will be removed.
      */
     public void deleteExhibition(String key) {
-        this.database.getCollection(EXHIBITION_COLLECTION).deleteMany(Filters.eq(ExhibitionCodec.FIELD_NAME_NAME, key));
+        final MongoCollection<Document> collection = this.database.getCollection(EXHIBITION_COLLECTION);
+        final List<ObjectId> ids = new ArrayList<>();
+        for (Document document : collection.find(Filters.eq(ExhibitionCodec.FIELD_NAME_NAME, key)).projection(Projections.include(ExhibitionCodec.FIELD_NAME_ID))) {
+            ids.add(document.getObjectId(ExhibitionCodec.FIELD_NAME_ID));
+        }
+        collection.deleteMany(Filters.eq(ExhibitionCodec.FIELD_NAME_NAME, key));
+        for (ObjectId id : ids) {
+            this.listeners.forEach(l -> l.onExhibitionDeleted(id));
+        }
     }
 }
@@ -0,0 +1,36 @@
+package ch.unibas.dmi.dbis.vrem.database.dao;
+
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import org.bson.types.ObjectId;
+
+/**
+ * Listener that is notified by a {@link VREMWriter} once a write has been acknowledged by the database. Used to keep caches and indexes in sync with the database.
+ */
+public interface VREMWriterListener {
+
+    /**
+     * Invoked after an {@link Exhibition} has been inserted or replaced.
+     *
+     * @param exhibition The {@link Exhibition} that has been stored.
+     */
+    default void onExhibitionSaved(Exhibition exhibition) {
+    }
+
+    /**
+     * Invoked after an {@link Exhibition} has been removed.
+     *
+     * @param id The {@link ObjectId} of the {@link Exhibition} that has been removed.
+     */
+    default void onExhibitionDeleted(ObjectId id) {
+    }
+
+    /**
+     * Invoked after an {@link Exhibit} has been added to an art collection.
+     *
+     * @param collection The name of the art collection.
+     * @param exhibit The {@link Exhibit} that has been added.
+     */
+    default void onExhibitUploaded(String collection, Exhibit exhibit) {
+    }
+}
@@ -0,0 +1,143 @@
+package ch.unibas.dmi.dbis.vrem.database.migration;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ch.unibas.dmi.dbis.vrem.config.Config;
+import ch.unibas.dmi.dbis.vrem.database.VREMDatabase;
+import ch.unibas.dmi.dbis.vrem.database.codec.ExhibitCodec;
+import ch.unibas.dmi.dbis.vrem.database.codec.ExhibitionCodec;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMDao;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import com.google.gson.Gson;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+/**
+ * One-off migration that assigns a persistent id to every exhibit stored before exhibit ids were persisted by the {@link ExhibitCodec}.
+ * <p>
+ * Every stored exhibit gets an id of its own, even if other exhibits share its path: an exhibit placed in an exhibition is a separate object with its own position and size, not a reference to the art collection's exhibit. Exhibits that already have an id are left untouched. The migration is idempotent, but it should be run while the server is stopped.
+ */
+@Command(name = "migrate-exhibit-ids", description = "Assigns persistent ids to exhibits stored without one")
+public class ExhibitIdMigration implements Runnable {
+
+    private static final Logger LOGGER = LogManager.getLogger(ExhibitIdMigration.class);
+
+    private static final String FIELD_NAME_EXHIBITS = "exhibits";
+
+    @Option(title = "Configuration", name = {"--config", "-c"}, description = "Path to configuration file")
+    @Required
+    private String config;
+
+    @Option(title = "Dry Run", name = {"--dry-run"}, description = "Only report how many documents would be changed")
+    private boolean dryRun = false;
+
+    /**
+     * Number of ids assigned so far.
+     */
+    private int assigned = 0;
+
+    @Override
+    public void run() {
+        try {
+            final String json = new String(Files.readAllBytes(Paths.get(this.config)), UTF_8);
+            final Config config = new Gson().fromJson(json, Config.class);
+            final MongoDatabase db = VREMDatabase.connect(config.database);
+
+            final int corpora = this.migrate(db.getCollection(VREMDao.CORPUS_COLLECTION), false);
+            final int exhibitions = this.migrate(db.getCollection(VREMDao.EXHIBITION_COLLECTION), true);
+            LOGGER.info("{} {} art collections and {} exhibitions; {} exhibit ids assigned.", this.dryRun ? "Would migrate" : "Migrated", corpora, exhibitions, this.assigned);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Migrates all documents of a collection.
+     *
+     * @param versioned True if the {@link ExhibitionCodec#FIELD_NAME_VERSION} of changed documents has to be incremented.
+     * @return Number of changed documents.
+     */
+    private int migrate(MongoCollection<Document> collection, boolean versioned) {
+        int changed = 0;
+        for (Document document : collection.find()) {
+            if (!this.assign(document)) {
+                continue;
+            }
+            changed++;
+            if (versioned) {
+                final Number version = document.get(ExhibitionCodec.FIELD_NAME_VERSION, Number.class);
+                document.put(ExhibitionCodec.FIELD_NAME_VERSION, version == null ? 1L : version.longValue() + 1);
+            }
+            if (!this.dryRun) {
+                /* Art collections store their id as a string, exhibitions as an ObjectId. */
+                collection.replaceOne(Filters.eq(ExhibitionCodec.FIELD_NAME_ID, document.get(ExhibitionCodec.FIELD_NAME_ID)), document);
+            }
+            LOGGER.debug("Assigned exhibit ids in {} {}", collection.getNamespace().getCollectionName(), document.get(ExhibitionCodec.FIELD_NAME_ID));
+        }
+        return changed;
+    }
+
+    /**
+     * Recursively assigns ids to all exhibits (i.e. documents in arrays named {@code exhibits}) below the given document.
+     *
+     * @return True if the document has been changed.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean assign(Document document) {
+        boolean changed = false;
+        for (Map.Entry<String, Object> field : document.entrySet()) {
+            if (!(field.getValue() instanceof List)) {
+                if (field.getValue() instanceof Document) {
+                    changed |= this.assign((Document) field.getValue());
+                }
+                continue;
+            }
+            final List<Object> list = (List<Object>) field.getValue();
+            for (int i = 0; i < list.size(); i++) {
+                if (!(list.get(i) instanceof Document)) {
+                    continue;
+                }
+                final Document element = (Document) list.get(i);
+                if (field.getKey().equals(FIELD_NAME_EXHIBITS)) {
+                    final Document exhibit = this.identify(element);
+                    if (exhibit != element) {
+                        list.set(i, exhibit);
+                        changed = true;
+                    }
+                } else {
+                    changed |= this.assign(element);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the given exhibit if it already has an id, otherwise a copy with a new id. Ids that are not an {@link ObjectId} are replaced.
+     */
+    private Document identify(Document exhibit) {
+        if (exhibit.get(ExhibitCodec.FIELD_NAME_ID) instanceof ObjectId) {
+            return exhibit;
+        }
+        this.assigned++;
+        final Document identified = new Document(ExhibitCodec.FIELD_NAME_ID, new ObjectId());
+        for (Map.Entry<String, Object> field : exhibit.entrySet()) {
+            if (!field.getKey().equals(ExhibitCodec.FIELD_NAME_ID)) {
+                identified.put(field.getKey(), field.getValue());
+            }
+        }
+        return identified;
+    }
+}
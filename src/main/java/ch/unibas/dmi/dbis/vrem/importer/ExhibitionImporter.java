@@ -7,7 +7,8 @@ import static ch.unibas.dmi.dbis.vrem.model.exhibition.cuboid.Direction.WEST;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import ch.unibas.dmi.dbis.vrem.config.Config;
-import ch.unibas.dmi.dbis.vrem.database.codec.VREMCodecProvider;
+import ch.unibas.dmi.dbis.vrem.database.VREMDatabase;
+import ch.unibas.dmi.dbis.vrem.database.VREMIndexes;
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter;
 import ch.unibas.dmi.dbis.vrem.model.Vector3f;
@@ -19,17 +20,15 @@ import ch.unibas.dmi.dbis.vrem.model.exhibition.polygonal.Room;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.Texture;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.polygonal.Wall;
 import ch.unibas.dmi.dbis.vrem.model.objects.CulturalHeritageObject.CHOType;
+import ch.unibas.dmi.dbis.vrem.server.handlers.content.LevelsOfDetail;
 import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Option;
 import com.github.rvesse.airline.annotations.restrictions.Required;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.mongodb.ConnectionString;
-import com.mongodb.MongoClientSettings;
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -38,17 +37,29 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.util.FileUtils;
-import org.bson.codecs.configuration.CodecRegistries;
-import org.bson.codecs.configuration.CodecRegistry;
 import spark.utils.StringUtils;
 
 /**
@@ -101,6 +112,32 @@ public class ExhibitionImporter implements Runnable {
     @Option(title = "Exhibition-Name", name = {"--name"}, description = "Name of the exhibition to be imported")
     private String name = "default-name";
 
+    @Option(title = "Threads", name = {"--threads"}, description = "Number of threads that measure images; defaults to the number of processors")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(title = "Levels of Detail", name = {"--lod"}, description = "Generate downscaled levels of detail for the imported images")
+    private boolean lod = false;
+
+    /**
+     * Generates levels of detail while importing; NULL if disabled.
+     */
+    private LevelsOfDetail levels;
+
+    /**
+     * Dimensions of all images below the exhibition root, measured in parallel ahead of the (sequential) placement of exhibits.
+     */
+    private final Map<File, Future<Dimension>> dimensions = new HashMap<>();
+
+    /**
+     * Total time spent measuring images in nanoseconds, summed over all threads.
+     */
+    private final AtomicLong measuring = new AtomicLong();
+
+    /**
+     * Completion of the last measurement in nanoseconds, see {@link System#nanoTime()}.
+     */
+    private final AtomicLong measured = new AtomicLong();
+
     private Gson gson;
     private Exhibition reference = null;
     private Comparator<Exhibit> pathExhibitComparator = Comparator.comparing(e -> e.path);
@@ -123,14 +160,14 @@ public class ExhibitionImporter implements Runnable {
             }
 
             /* Prepare database & DAO. */
-            final CodecRegistry registry = CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), CodecRegistries.fromProviders(new VREMCodecProvider()));
-            final ConnectionString connectionString = config.database.getConnectionString();
-            final MongoClientSettings settings = MongoClientSettings.builder().codecRegistry(registry).applyConnectionString(connectionString).applicationName("VREM").build();
-
-            final MongoClient client = MongoClients.create(settings);
-            db = client.getDatabase(config.database.database);
+            db = VREMDatabase.connect(config.database);
+            VREMIndexes.ensure(db);
             writer = new VREMWriter(db);
 
+            if (this.lod) {
+                this.levels = new LevelsOfDetail(exhibitionRoot.getParent(), config.server != null ? config.server.getLodLevels() : null, Math.max(1, config.server != null ? config.server.getLodThreads() : 1), true);
+            }
+
             VREMReader reader = new VREMReader(db);
             if (reader.getExhibition(name) != null) {
                 if (!clean) {
@@ -141,7 +178,15 @@ public class ExhibitionImporter implements Runnable {
             }
             Exhibition exhibition = new Exhibition(name, exhibitionDescription);
 
+            /* Measure images in parallel; rooms, walls and exhibits are still placed in order, waiting for measurements where necessary. */
             LOGGER.info("Starting to import exhibition at {}", exhibitionRoot);
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.threads));
+            final long start = System.nanoTime();
+            final int images = this.measure(exhibitionRoot, executor);
+            executor.shutdown();
+            final long scanned = System.nanoTime();
+            LOGGER.info("Scanned {} images in {} ms", images, TimeUnit.NANOSECONDS.toMillis(scanned - start));
+
             Arrays.stream(Objects.requireNonNull(exhibitionRoot.toFile().listFiles(File::isDirectory))).forEach(f -> {
                 if (f.getName().startsWith("__")) { // TODO Extract const
                     return;
@@ -153,9 +198,21 @@ public class ExhibitionImporter implements Runnable {
                     e.printStackTrace();
                 }
             });
+            final long built = System.nanoTime();
+            final long wall = Math.max(1, this.measured.get() - start);
+            LOGGER.info("Measured {} images in {} ms on {} threads ({} ms of work, speedup {})", images, TimeUnit.NANOSECONDS.toMillis(wall), Math.max(1, this.threads), TimeUnit.NANOSECONDS.toMillis(this.measuring.get()), String.format("%.1f", this.measuring.get() / (double) wall));
+            LOGGER.info("Built exhibition in {} ms", TimeUnit.NANOSECONDS.toMillis(built - scanned));
+
             writer.saveExhibition(exhibition);
+            LOGGER.info("Saved exhibition in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - built));
+            if (this.levels != null) {
+                LOGGER.info("Waiting for levels of detail to be generated");
+                this.levels.shutdown();
+            }
         } catch (IOException e) {
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -274,7 +331,7 @@ public class ExhibitionImporter implements Runnable {
             if (extension.equalsIgnoreCase(JSON_EXTENSION)) {
                 return false;
             }
-            if (extension.equalsIgnoreCase(PNG_EXTENSION) || extension.equalsIgnoreCase(JPG_EXTENSION)) {
+            if (isImage(f)) {
                 return true;
             }
             LOGGER.debug("ignoring file {} because it has extension {}", f, extension);
@@ -312,10 +369,10 @@ public class ExhibitionImporter implements Runnable {
             LOGGER.debug("Creating empty exhibit for path {}", path);
         }
         try {
-            BufferedImage img = ImageIO.read(exhibitFile);
-            float aspectRatio = (float) img.getHeight() / (float) img.getWidth();
+            Dimension img = this.dimensions(exhibitFile);
+            float aspectRatio = (float) img.height / (float) img.width;
             float width = 2, height = 2; // 2m
-            if (img.getWidth() > img.getHeight()) {
+            if (img.width > img.height) {
                 height = (aspectRatio * 200f) / 100f; // in cm for precision
             } else {
                 width = (200f / aspectRatio) / 100f;
@@ -326,6 +383,9 @@ public class ExhibitionImporter implements Runnable {
             if (exhibit.position == null || (exhibit.position.isNaN() || exhibit.position.equals(Vector3f.ORIGIN))) {
                 exhibit.position = calculatePosition(exhibit, siblings);
             }
+            if (this.levels != null) {
+                this.levels.generate(exhibitFile.toPath().toAbsolutePath());
+            }
             Optional<Exhibit> reference = findExhibitForPath(this.reference, exhibit.path);
             if (reference.isPresent()) {
                 LOGGER.debug("Found reference {}", reference.get());
@@ -340,6 +400,80 @@ public class ExhibitionImporter implements Runnable {
     }
 
 
+    /**
+     * Schedules the measurement of all images in wall folders below the exhibition root, i.e. {@code <root>/<room>/<wall>/<image>}.
+     *
+     * @return Number of scheduled images.
+     */
+    private int measure(Path exhibitionRoot, ExecutorService executor) throws IOException {
+        final List<Path> files;
+        try (Stream<Path> stream = Files.walk(exhibitionRoot, 3)) {
+            files = stream.filter(p -> exhibitionRoot.relativize(p).getNameCount() == 3 && !exhibitionRoot.relativize(p).getName(0).toString().startsWith("__") && isImage(p.toFile())).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            this.dimensions.put(file.toFile(), executor.submit(() -> {
+                final long start = System.nanoTime();
+                try {
+                    return measure(file.toFile());
+                } finally {
+                    final long end = System.nanoTime();
+                    this.measuring.addAndGet(end - start);
+                    this.measured.accumulateAndGet(end, Math::max);
+                }
+            }));
+        }
+        return files.size();
+    }
+
+    /**
+     * Returns the dimensions of an image, waiting for its measurement if it has been scheduled and measuring it otherwise.
+     */
+    private Dimension dimensions(File file) throws IOException {
+        final Future<Dimension> future = this.dimensions.get(file);
+        if (future == null) {
+            return measure(file);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while measuring " + file, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads the dimensions of an image from its header, without decoding the pixels.
+     */
+    private static Dimension measure(File file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            final Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+            if (readers.hasNext()) {
+                final ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    return new Dimension(reader.getWidth(0), reader.getHeight(0));
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+        final BufferedImage img = ImageIO.read(file);
+        if (img == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        return new Dimension(img.getWidth(), img.getHeight());
+    }
+
+    /**
+     * Checks whether a file is an image that can be imported as an exhibit.
+     */
+    private static boolean isImage(File f) {
+        final String extension = FileUtils.getFileExtension(f);
+        return extension != null && (extension.equalsIgnoreCase(PNG_EXTENSION) || extension.equalsIgnoreCase(JPG_EXTENSION)) && !LevelsOfDetail.isVariant(f.getName());
+    }
+
     private Vector3f calculatePosition(Exhibit e, List<Exhibit> siblings) {
         if (siblings.isEmpty()) {
             return new Vector3f(ROOM_BORDER + (e.size.x / 2f), EXHIBIT_DEFAULT_HEIGHT, 0);
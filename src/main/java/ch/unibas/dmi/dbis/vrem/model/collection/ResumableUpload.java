@@ -0,0 +1,60 @@
+package ch.unibas.dmi.dbis.vrem.model.collection;
+
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of an upload that is sent in chunks and can be resumed after a failure. Clients create it with {@link #artCollection}, {@link #exhibit}, {@link #fileExtension} and {@link #length}; the server fills in the rest.
+ */
+public class ResumableUpload {
+
+    /**
+     * Identifies the upload session; assigned by the server.
+     */
+    public String id;
+
+    public String artCollection;
+
+    public Exhibit exhibit;
+
+    public String fileExtension;
+
+    /**
+     * Total size of the file in bytes.
+     */
+    public long length;
+
+    /**
+     * Number of bytes received so far.
+     */
+    public long received;
+
+    /**
+     * Byte ranges that still have to be sent, in order.
+     */
+    public List<Range> missing = new ArrayList<>();
+
+    public ResumableUpload(String id, String artCollection, Exhibit exhibit, String fileExtension, long length) {
+        this.id = id;
+        this.artCollection = artCollection;
+        this.exhibit = exhibit;
+        this.fileExtension = fileExtension;
+        this.length = length;
+    }
+
+    /**
+     * A contiguous range of bytes.
+     */
+    public static class Range {
+
+        public long offset;
+
+        public long length;
+
+        public Range(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -18,6 +18,11 @@ public class Exhibition {
 
     public final String description;
 
+    /**
+     * Version of this exhibition; incremented every time it is saved.
+     */
+    public long version;
+
     private final List<Room> rooms = new ArrayList<>();
 
     private final List<Corridor> corridors = new ArrayList<>();
@@ -72,27 +77,19 @@ public class Exhibition {
     public List<Exhibit> getExhibits(){
         final List<Exhibit> list = new ArrayList<>();
 
-        if(rooms == null){
-            return Collections.unmodifiableList(new ArrayList<>());
-        }else{
-            this.rooms.forEach(r -> {
-                list.addAll(r.getExhibits());
-                r.getWalls().forEach(w -> {
-                    list.addAll(w.getExhibits());
-                });
+        this.getRooms().forEach(r -> {
+            list.addAll(r.getExhibits());
+            r.getWalls().forEach(w -> {
+                list.addAll(w.getExhibits());
             });
-        }
+        });
 
-        if(corridors == null){
-            return Collections.unmodifiableList(new ArrayList<>());
-        }else{
-            this.rooms.forEach(r -> {
-                list.addAll(r.getExhibits());
-                r.getWalls().forEach(w -> {
-                    list.addAll(w.getExhibits());
-                });
+        this.getCorridors().forEach(c -> {
+            list.addAll(c.getExhibits());
+            c.getWalls().forEach(w -> {
+                list.addAll(w.getExhibits());
             });
-        }
+        });
 
         return Collections.unmodifiableList(list);
     }
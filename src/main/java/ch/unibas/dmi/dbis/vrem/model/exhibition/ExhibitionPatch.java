@@ -0,0 +1,95 @@
+package ch.unibas.dmi.dbis.vrem.model.exhibition;
+
+import ch.unibas.dmi.dbis.vrem.model.Vector3f;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.polygonal.Wall;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of changes to an {@link Exhibition} that are applied atomically, provided the {@link Exhibition} is still at the expected version.
+ */
+public class ExhibitionPatch {
+
+    /**
+     * The {@link Exhibition#version} the changes are based on.
+     */
+    public long version;
+
+    /**
+     * The changes, in order.
+     */
+    public List<Operation> operations = new ArrayList<>();
+
+    /**
+     *
+     */
+    public ExhibitionPatch(long version, List<Operation> operations) {
+        this.version = version;
+        this.operations = operations;
+    }
+
+    /**
+     * A single change. Which of the fields are required depends on its {@link Type}.
+     */
+    public static class Operation {
+
+        public Type op;
+
+        /**
+         * Index of the room; required by all operations.
+         */
+        public Integer room;
+
+        /**
+         * Index of the wall within the room; if absent, exhibit operations address exhibits placed in the room itself.
+         */
+        public Integer wall;
+
+        /**
+         * Index of the exhibit within the room or wall.
+         */
+        public Integer exhibit;
+
+        /**
+         * New position of the exhibit ({@link Type#MOVE_EXHIBIT}).
+         */
+        public Vector3f position;
+
+        /**
+         * New size of the exhibit ({@link Type#RESIZE_EXHIBIT}).
+         */
+        public Vector3f size;
+
+        /**
+         * New floor texture of the room ({@link Type#RETEXTURE_ROOM}).
+         */
+        public String floor;
+
+        /**
+         * New ceiling texture of the room ({@link Type#RETEXTURE_ROOM}).
+         */
+        public String ceiling;
+
+        /**
+         * New texture of the wall ({@link Type#RETEXTURE_WALL}).
+         */
+        public String texture;
+
+        /**
+         * Exhibit to add ({@link Type#ADD_EXHIBIT}).
+         */
+        public Exhibit addedExhibit;
+
+        /**
+         * Wall to add ({@link Type#ADD_WALL}).
+         */
+        public Wall addedWall;
+    }
+
+    /**
+     *
+     */
+    public enum Type {
+        MOVE_EXHIBIT, RESIZE_EXHIBIT, ADD_EXHIBIT, ADD_WALL, RETEXTURE_ROOM, RETEXTURE_WALL
+    }
+}
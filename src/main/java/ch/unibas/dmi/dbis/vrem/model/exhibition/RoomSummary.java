@@ -0,0 +1,42 @@
+package ch.unibas.dmi.dbis.vrem.model.exhibition;
+
+import ch.unibas.dmi.dbis.vrem.model.Vector3f;
+
+/**
+ * Entry of the room manifest of an {@link Exhibition}; describes a room without its walls and exhibits.
+ */
+public class RoomSummary {
+
+    /**
+     * Position of the room within the exhibition; used to load the room.
+     */
+    public int index;
+
+    public String text;
+
+    public Vector3f position;
+
+    public double height;
+
+    /**
+     * Number of walls of the room.
+     */
+    public int walls;
+
+    /**
+     * Number of exhibits in the room, including those placed on its walls.
+     */
+    public int exhibits;
+
+    /**
+     *
+     */
+    public RoomSummary(int index, String text, Vector3f position, double height, int walls, int exhibits) {
+        this.index = index;
+        this.text = text;
+        this.position = position;
+        this.height = height;
+        this.walls = walls;
+        this.exhibits = exhibits;
+    }
+}
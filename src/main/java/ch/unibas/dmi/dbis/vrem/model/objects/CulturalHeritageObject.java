@@ -6,7 +6,10 @@ import org.bson.types.ObjectId;
 
 public class CulturalHeritageObject {
 
-    public final String id;
+    /**
+     * Hex encoded {@link ObjectId}; exhibits sent by clients may lack one until they are stored.
+     */
+    public String id;
 
     public String name;
 
@@ -0,0 +1,98 @@
+package ch.unibas.dmi.dbis.vrem.server;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.EmbeddedServer;
+import spark.embeddedserver.EmbeddedServerFactory;
+import spark.embeddedserver.jetty.EmbeddedJettyServer;
+import spark.embeddedserver.jetty.JettyHandler;
+import spark.embeddedserver.jetty.JettyServerFactory;
+import spark.http.matching.MatcherFilter;
+import spark.route.Routes;
+import spark.staticfiles.StaticFilesConfiguration;
+
+/**
+ * Embedded Jetty server that allows routes to complete their responses asynchronously.
+ * <p>
+ * Spark's default server writes, flushes and closes the response as soon as a route returns, which ends the request even if the route has put it into asynchronous mode using {@link HttpServletRequest#startAsync()}. With this server, a route that has started asynchronous processing returns NULL and Spark leaves the response untouched; the route is then responsible for completing the {@link javax.servlet.AsyncContext}. All other routes behave as before. Must be registered before the first route is mapped.
+ * <p>
+ * The server is stopped when the JVM shuts down; the {@link ExecutorService}s that complete asynchronous requests are shut down along with it.
+ */
+public class AsyncJettyServerFactory implements EmbeddedServerFactory, JettyServerFactory {
+
+    /**
+     * {@link ExecutorService}s that are shut down once the server has stopped.
+     */
+    private final List<ExecutorService> executors;
+
+    /**
+     * @param executors {@link ExecutorService}s that complete asynchronous requests and are shut down once the server has stopped.
+     */
+    public AsyncJettyServerFactory(ExecutorService... executors) {
+        this.executors = Arrays.asList(executors);
+    }
+
+    @Override
+    public EmbeddedServer create(Routes routes, StaticFilesConfiguration staticFilesConfiguration, boolean hasMultipleHandler) {
+        /* Pretending that there are other handlers makes Spark skip requests whose route produced no body. */
+        final MatcherFilter filter = new MatcherFilter(routes, staticFilesConfiguration, false, true);
+        filter.init(null);
+        return new EmbeddedJettyServer(this, new AsyncJettyHandler(filter));
+    }
+
+    @Override
+    public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        if (maxThreads > 0) {
+            return this.manage(new Server(new QueuedThreadPool(maxThreads, minThreads > 0 ? minThreads : 8, threadTimeoutMillis > 0 ? threadTimeoutMillis : 60000)));
+        }
+        return this.manage(new Server());
+    }
+
+    @Override
+    public Server create(ThreadPool threadPool) {
+        return this.manage(threadPool != null ? new Server(threadPool) : new Server());
+    }
+
+    /**
+     * Ties the lifecycle of the {@link #executors} to the given {@link Server}.
+     */
+    private Server manage(Server server) {
+        server.setStopAtShutdown(true);
+        server.addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener() {
+            @Override
+            public void lifeCycleStopped(LifeCycle event) {
+                AsyncJettyServerFactory.this.executors.forEach(ExecutorService::shutdown);
+            }
+        });
+        return server;
+    }
+
+    /**
+     * Marks requests in asynchronous mode as handled, so that Jetty doesn't answer them with 404 once they complete.
+     */
+    private static class AsyncJettyHandler extends JettyHandler {
+
+        private AsyncJettyHandler(MatcherFilter filter) {
+            super(filter);
+        }
+
+        @Override
+        public void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+            super.doHandle(target, baseRequest, request, response);
+            if (baseRequest.isAsyncStarted()) {
+                baseRequest.setHandled(true);
+            }
+        }
+    }
+}
@@ -1,35 +1,60 @@
 package ch.unibas.dmi.dbis.vrem.server;
 
-import static spark.Spark.after;
+import static spark.Spark.before;
+import static spark.Spark.delete;
+import static spark.Spark.exception;
 import static spark.Spark.get;
+import static spark.Spark.options;
 import static spark.Spark.port;
 import static spark.Spark.post;
+import static spark.Spark.put;
 
+import ch.unibas.dmi.dbis.vrem.cache.ExhibitCatalog;
+import ch.unibas.dmi.dbis.vrem.cache.ExhibitionCache;
+import ch.unibas.dmi.dbis.vrem.cache.ExhibitionResponseCache;
 import ch.unibas.dmi.dbis.vrem.config.Config;
-import ch.unibas.dmi.dbis.vrem.database.codec.VREMCodecProvider;
+import ch.unibas.dmi.dbis.vrem.database.VREMDatabase;
+import ch.unibas.dmi.dbis.vrem.database.VREMIndexes;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMAsyncReader;
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter;
+import ch.unibas.dmi.dbis.vrem.server.handlers.collection.ResumableUploadHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.collection.StreamUploadExhibitHandler;
 import ch.unibas.dmi.dbis.vrem.server.handlers.collection.UploadExhibitHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.collection.UploadSessions;
+import ch.unibas.dmi.dbis.vrem.server.handlers.collection.UploadStorage;
+import ch.unibas.dmi.dbis.vrem.server.handlers.content.CachePolicy;
+import ch.unibas.dmi.dbis.vrem.server.handlers.content.CompressedVariants;
+import ch.unibas.dmi.dbis.vrem.server.handlers.content.ContentCache;
+import ch.unibas.dmi.dbis.vrem.server.handlers.content.LevelsOfDetail;
+import ch.unibas.dmi.dbis.vrem.server.handlers.content.MimeTypes;
 import ch.unibas.dmi.dbis.vrem.server.handlers.content.RequestContentHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ConflictException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.PayloadTooLargeException;
 import ch.unibas.dmi.dbis.vrem.server.handlers.exhibition.ListExhibitionsHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.exhibition.ListRoomsHandler;
 import ch.unibas.dmi.dbis.vrem.server.handlers.collection.ListExhibitsHandler;
 import ch.unibas.dmi.dbis.vrem.server.handlers.exhibition.LoadExhibitionHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.exhibition.LoadExhibitsHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.exhibition.LoadRoomHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.exhibition.PatchExhibitionHandler;
 import ch.unibas.dmi.dbis.vrem.server.handlers.exhibition.SaveExhibitionHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.metrics.CacheStatisticsHandler;
+import ch.unibas.dmi.dbis.vrem.server.serialization.VREMGson;
 import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Option;
 import com.google.gson.Gson;
-import com.mongodb.ConnectionString;
-import com.mongodb.MongoClientSettings;
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import org.bson.codecs.configuration.CodecRegistries;
-import org.bson.codecs.configuration.CodecRegistry;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import spark.embeddedserver.EmbeddedServers;
 
 
 @Command(name = "server", description = "Start the web server")
@@ -45,14 +70,35 @@ public class WebServer implements Runnable {
             final String json = new String(Files.readAllBytes(Paths.get(this.config)), StandardCharsets.UTF_8);
             final Config config = gson.fromJson(json, Config.class);
 
-            final CodecRegistry registry = CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), CodecRegistries.fromProviders(new VREMCodecProvider()));
-            final ConnectionString connectionString = config.database.getConnectionString();
-            final MongoClientSettings settings = MongoClientSettings.builder().codecRegistry(registry).applyConnectionString(connectionString).applicationName("VREM").build();
-
-            final MongoClient client = MongoClients.create(settings);
-            final MongoDatabase db = client.getDatabase(config.database.database);
-            final VREMReader reader = new VREMReader(db);
+            final MongoDatabase db = VREMDatabase.connect(config.database);
+            VREMIndexes.ensure(db);
+            final ExhibitionCache exhibitionCache = new ExhibitionCache(config.server.getExhibitionCacheSize());
+            final ExhibitionCache skeletonCache = new ExhibitionCache(config.server.getExhibitionCacheSize());
+            final ExhibitCatalog catalog = new ExhibitCatalog();
+            /* Caches are filled from the primary only, since an entry read from a lagging secondary would be served until the next write evicts it. Uncached reads use the configured read preference. */
+            final VREMReader reader = new VREMReader(db, exhibitionCache, skeletonCache, catalog);
+            final VREMReader listingReader = new VREMReader(db.withReadPreference(config.database.getReadPreference()), null, null, catalog);
             final VREMWriter writer = new VREMWriter(db);
+            final ExhibitionResponseCache responseCache = new ExhibitionResponseCache(config.server.getExhibitionCacheSize(), VREMGson.gson());
+            final ExhibitionResponseCache skeletonResponseCache = new ExhibitionResponseCache(config.server.getExhibitionCacheSize(), VREMGson.gson());
+            writer.addListener(exhibitionCache);
+            writer.addListener(skeletonCache);
+            writer.addListener(responseCache);
+            writer.addListener(skeletonResponseCache);
+            writer.addListener(catalog);
+            reader.rebuildCatalog();
+
+            /* Load exhibitions without blocking request threads, if enabled; this requires a server that supports asynchronous routes. */
+            final VREMAsyncReader asyncReader;
+            final ExecutorService asyncExecutor;
+            if (config.server.isAsyncLoading()) {
+                asyncReader = new VREMAsyncReader(VREMDatabase.connectAsync(config.database), exhibitionCache, skeletonCache);
+                asyncExecutor = Executors.newFixedThreadPool(config.server.getAsyncThreads());
+                EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new AsyncJettyServerFactory(asyncExecutor));
+            } else {
+                asyncReader = null;
+                asyncExecutor = null;
+            }
 
             /* Set port. */
             port(config.server.getPort());
@@ -62,19 +108,60 @@ public class WebServer implements Runnable {
                 throw new IOException("DocumentRoot does not exist.");
             }
 
+            final ContentCache contentCache = config.server.getContentCacheSize() > 0 ? new ContentCache(docRoot, config.server.getContentCacheSize(), config.server.getContentCacheThreshold()) : null;
+            final CacheStatisticsHandler cacheStatistics = new CacheStatisticsHandler().register("exhibitions", exhibitionCache::statistics).register("skeletons", skeletonCache::statistics)
+                .register("responses", responseCache::statistics).register("skeletonResponses", skeletonResponseCache::statistics);
+            if (contentCache != null) {
+                cacheStatistics.register("content", contentCache::statistics);
+            }
+
+            final UploadStorage uploadStorage = new UploadStorage(docRoot, config.server.getUploadDirectory(), config.server.getMaxUploadSize());
+            final LevelsOfDetail levels = config.server.getLodThreads() > 0 ? new LevelsOfDetail(docRoot, config.server.getLodLevels(), config.server.getLodThreads(), false) : null;
+            if (levels != null) {
+                writer.addListener(levels);
+            }
+
             /* Register routes. */
-            get("/content/get/:path", new RequestContentHandler(docRoot));
-            get("/exhibitions/list", new ListExhibitionsHandler(reader));
-            get("/exhibits/list", new ListExhibitsHandler(reader));
-            get("/exhibitions/load/:id", new LoadExhibitionHandler(reader));
-            get("/exhibitions/loadbyname/:name", new LoadExhibitionHandler(reader));
+            get("/content/get/:path", new RequestContentHandler(docRoot, new CachePolicy(config.server.getContentMaxAge(), Collections.singletonList(UploadStorage.BLOB_DIRECTORY)), contentCache, new MimeTypes(config.server.getMimeTypes()), new CompressedVariants(config.server.isCompressContent()), levels));
+            get("/exhibitions/list", new ListExhibitionsHandler(listingReader));
+            get("/exhibits/list", new ListExhibitsHandler(listingReader));
+            get("/exhibitions/load/:id", new LoadExhibitionHandler(reader, asyncReader, asyncExecutor, config.server.getAsyncTimeout() * 1000, responseCache, skeletonResponseCache));
+            get("/exhibitions/loadbyname/:name", new LoadExhibitionHandler(reader, asyncReader, asyncExecutor, config.server.getAsyncTimeout() * 1000, responseCache, skeletonResponseCache));
+            get("/exhibitions/:id/exhibits", new LoadExhibitsHandler(reader));
+            get("/exhibitions/:id/rooms", new ListRoomsHandler(listingReader));
+            get("/exhibitions/:id/rooms/:index", new LoadRoomHandler(listingReader));
             post("/exhibitions/save", new SaveExhibitionHandler(writer));
-            post("/exhibits/upload", new UploadExhibitHandler(writer, docRoot));
+            post("/exhibitions/:id/patch", new PatchExhibitionHandler(reader, writer));
+            post("/exhibits/upload", new UploadExhibitHandler(writer, uploadStorage));
+            post("/exhibits/upload/stream", new StreamUploadExhibitHandler(writer, uploadStorage));
+            final ResumableUploadHandler resumableUploads = new ResumableUploadHandler(writer, new UploadSessions(uploadStorage, config.server.getUploadSessionTimeout() * 1000));
+            post("/exhibits/uploads", resumableUploads);
+            get("/exhibits/uploads/:id", resumableUploads);
+            put("/exhibits/uploads/:id", resumableUploads);
+            delete("/exhibits/uploads/:id", resumableUploads);
+            post("/exhibits/uploads/:id/finish", resumableUploads);
+            options("/exhibits/uploads/*", (request, response) -> "");
+            get("/metrics/caches", cacheStatistics);
+
+            /* Map exceptions to status codes. */
+            exception(InvalidParameterException.class, (e, request, response) -> {
+                response.status(400);
+                response.body(e.getMessage());
+            });
+            exception(ConflictException.class, (e, request, response) -> {
+                response.status(409);
+                response.body(e.getMessage());
+            });
+            exception(PayloadTooLargeException.class, (e, request, response) -> {
+                response.status(413);
+                response.body(e.getMessage());
+            });
 
-            /* Configure the result after processing was completed. */
-            after((request, response) -> {
+            /* Configure the result before processing starts; streamed responses are committed before an after-filter could run. */
+            before((request, response) -> {
                 response.header("Access-Control-Allow-Origin", "*");
                 response.header("Access-Control-Allow-Headers", "*");
+                response.header("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
             });
         } catch (IOException e) {
             e.printStackTrace();
@@ -0,0 +1,10 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.basic;
+
+public class ConflictException extends ActionHandlerException {
+
+    private static final long serialVersionUID = 6147093215368225034L;
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
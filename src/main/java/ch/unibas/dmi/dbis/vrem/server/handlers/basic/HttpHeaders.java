@@ -0,0 +1,128 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.basic;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Names of HTTP headers used by the handlers and helpers to evaluate them.
+ */
+public final class HttpHeaders {
+
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String ACCEPT_RANGES = "Accept-Ranges";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String CONTENT_RANGE = "Content-Range";
+    public static final String ETAG = "ETag";
+    public static final String IF_MATCH = "If-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_RANGE = "If-Range";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String RANGE = "Range";
+    public static final String VARY = "Vary";
+
+    public static final String ENCODING_GZIP = "gzip";
+
+    /**
+     * Formats IMF-fixdates, the preferred HTTP-date format; unlike {@link DateTimeFormatter#RFC_1123_DATE_TIME}, it always uses two-digit days.
+     */
+    private static final DateTimeFormatter IMF_FIXDATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private HttpHeaders() {
+    }
+
+    /**
+     * Checks whether an {@code If-None-Match} header matches the given entity tag. Uses weak comparison, as mandated by RFC 7232 for {@code If-None-Match}.
+     *
+     * @param header Value of the {@code If-None-Match} header. May be NULL!
+     * @param etag The current entity tag (including quotes).
+     * @return True if the header matches, i.e. the client's representation is up to date.
+     */
+    public static boolean matchesEntityTag(String header, String etag) {
+        if (header == null || etag == null) {
+            return false;
+        }
+        final String current = stripWeak(etag);
+        for (String candidate : header.split(",")) {
+            final String trimmed = candidate.trim();
+            if (trimmed.equals("*") || stripWeak(trimmed).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an {@code Accept-Encoding} header allows the given content coding.
+     *
+     * @param header Value of the {@code Accept-Encoding} header. May be NULL!
+     * @param encoding The content coding, e.g. {@link #ENCODING_GZIP}.
+     * @return True if the client accepts the encoding.
+     */
+    public static boolean acceptsEncoding(String header, String encoding) {
+        if (header == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String candidate : header.split(",")) {
+            final String[] parts = candidate.trim().split(";");
+            final String coding = parts[0].trim();
+            final boolean acceptable = quality(parts) > 0.0;
+            if (coding.equalsIgnoreCase(encoding)) {
+                return acceptable;
+            } else if (coding.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Formats a point in time as IMF-fixdate (RFC 7231).
+     *
+     * @param millis Milliseconds since the epoch.
+     */
+    public static String formatDate(long millis) {
+        return IMF_FIXDATE.format(Instant.ofEpochMilli(millis));
+    }
+
+    /**
+     * Parses a HTTP-date (RFC 7231).
+     *
+     * @param header The value to parse. May be NULL!
+     * @return Seconds since the epoch or -1 if the value is absent or not a valid HTTP-date.
+     */
+    public static long parseDate(String header) {
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(header, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            final String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0.0;
+                }
+            }
+        }
+        return 1.0;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,14 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.basic;
+
+public class InvalidParameterException extends ActionHandlerException {
+
+    private static final long serialVersionUID = -1484526935167460382L;
+
+    public InvalidParameterException(String message) {
+        super(message);
+    }
+
+    public InvalidParameterException(String name, String value) {
+        this("Invalid value '" + value + "' for parameter '" + name + "'.");
+    }
+}
@@ -1,25 +1,39 @@
 package ch.unibas.dmi.dbis.vrem.server.handlers.basic;
 
+import ch.unibas.dmi.dbis.vrem.database.dao.PageRequest;
+import ch.unibas.dmi.dbis.vrem.server.serialization.VREMGson;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
-import java.lang.reflect.Type;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import org.bson.types.ObjectId;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
 import spark.Request;
 import spark.Response;
 
 public abstract class ParsingActionHandler<A> implements ActionHandler<A> {
 
     /**
-     * Invoked when an incoming request is routed towards this class by Java Spark. The method handles that request, extracts named parameters and parses the (optional) request body using Jackson. The resulting context object is then forwarded to the doGet() method.
+     * Size of the character buffer used when streaming a response. Every time it fills up, a chunk is sent to the client.
+     */
+    private static final int STREAMING_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Names of the query parameters used for pagination, see {@link #pageRequest(Map, String...)}.
+     */
+    public static final String PARAMETER_LIMIT = "limit";
+    public static final String PARAMETER_CURSOR = "cursor";
+    public static final String PARAMETER_SORT = "sort";
+    public static final String PARAMETER_ORDER = "order";
+
+    /**
+     * Invoked when an incoming request is routed towards this class by Java Spark. The method handles that request, extracts named and query parameters and parses the (optional) request body using the shared {@link VREMGson} instance. The resulting context object is then forwarded to the doGet() method.
      *
      * @param request The request object providing information about the HTTP request
      * @param response The response object providing functionality for modifying the response
@@ -29,48 +43,23 @@ public abstract class ParsingActionHandler<A> implements ActionHandler<A> {
     @Override
     public Object handle(Request request, Response response) throws Exception {
         try {
-            Map<String, String> params = request.params();
-
-            if (params == null) {
-                params = new HashMap<>();
-            }
+            final Map<String, String> params = this.parameters(request);
             response.type("application/json");
 
-            GsonBuilder builder = new GsonBuilder();
-            JsonSerializer<ObjectId> serializer = new JsonSerializer<ObjectId>() {
-                @Override
-                public JsonElement serialize(ObjectId src, Type typeOfSrc, JsonSerializationContext context) {
-                    JsonObject json = new JsonObject();
-                    json.addProperty("id", src.toHexString());
-                    return json;
-                }
-            };
-            JsonDeserializer<ObjectId> deserializer = new JsonDeserializer<ObjectId>() {
-                @Override
-                public ObjectId deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-                    if (json instanceof JsonObject) {
-                        JsonObject obj = (JsonObject) json;
-                        return new ObjectId(obj.get("id").getAsString());
-                    }
-                    throw new JsonParseException("Couldn't parse objectId: " + json);
-                }
-            };
-
-            builder.registerTypeAdapter(ObjectId.class, serializer);
-            builder.registerTypeAdapter(ObjectId.class, deserializer);
-
-            final Gson gson = builder.create();
+            final Gson gson = VREMGson.gson();
 
             switch (request.requestMethod()) {
                 case "GET":
-                    return gson.toJson(this.doGet(params));
+                    return this.respond(gson, this.doGet(params), response);
                 case "DELETE":
                     this.doDelete(params);
-                    return null;
+
+                    /* Spark answers requests without a body with 404. */
+                    return "";
                 case "POST":
-                    return gson.toJson(this.doPost(gson.fromJson(request.body(), this.inClass()), params));
+                    return this.respond(gson, this.doPost(gson.fromJson(request.body(), this.inClass()), params), response);
                 case "PUT":
-                    return gson.toJson(this.doPut(gson.fromJson(request.body(), this.inClass()), params));
+                    return this.respond(gson, this.doPut(gson.fromJson(request.body(), this.inClass()), params), response);
                 default:
                     throw new MethodNotSupportedException(request);
             }
@@ -79,5 +68,105 @@ public abstract class ParsingActionHandler<A> implements ActionHandler<A> {
             throw e;
         }
     }
-}
 
+    /**
+     * Collects the named and query parameters of a request. Named parameters are prefixed with a colon and thus never clash with query parameters.
+     *
+     * @param request The request object providing information about the HTTP request
+     * @return Modifiable map of parameters.
+     */
+    protected Map<String, String> parameters(Request request) {
+        final Map<String, String> params = new HashMap<>();
+        if (request.params() != null) {
+            params.putAll(request.params());
+        }
+        for (String name : request.queryParams()) {
+            params.putIfAbsent(name, request.queryParams(name));
+        }
+        return params;
+    }
+
+    /**
+     * Returns the body of a request as a stream, bypassing Spark's request wrapper, which would buffer the whole body in memory. Must not be combined with {@link Request#body()}.
+     *
+     * @param request The request object providing information about the HTTP request
+     * @return Unbuffered stream of the request body.
+     */
+    protected static InputStream body(Request request) throws IOException {
+        ServletRequest raw = request.raw();
+        while (raw instanceof ServletRequestWrapper) {
+            raw = ((ServletRequestWrapper) raw).getRequest();
+        }
+        return raw.getInputStream();
+    }
+
+    /**
+     * Indicates whether results of this handler are streamed. If so, the result is serialized straight to the response's output stream using chunked transfer encoding instead of being converted into a String first. This keeps heap usage flat for large results, but the response is committed as soon as the first chunk has been written.
+     *
+     * @return True if results should be streamed, false otherwise.
+     */
+    protected boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Tests if the tiebreaker decoded from a cursor is valid for the listing of this handler. Cursors with an invalid tiebreaker are rejected by {@link #pageRequest(Map, String...)}.
+     */
+    protected boolean isTiebreaker(String tiebreaker) {
+        return true;
+    }
+
+    /**
+     * Reads the pagination parameters {@code limit}, {@code cursor}, {@code sort} and {@code order} ({@code asc} or {@code desc}). Without a limit, all entries are listed.
+     *
+     * @param parameters Map containing named and query parameters.
+     * @param sorts Supported sort keys; the first one is the default.
+     * @return {@link PageRequest}
+     * @throws InvalidParameterException If one of the parameters is invalid.
+     */
+    protected PageRequest pageRequest(Map<String, String> parameters, String... sorts) throws InvalidParameterException {
+        final String sort = parameters.getOrDefault(PARAMETER_SORT, sorts[0]);
+        if (!Arrays.asList(sorts).contains(sort)) {
+            throw new InvalidParameterException(PARAMETER_SORT, sort);
+        }
+        final String order = parameters.getOrDefault(PARAMETER_ORDER, "asc");
+        if (!order.equals("asc") && !order.equals("desc")) {
+            throw new InvalidParameterException(PARAMETER_ORDER, order);
+        }
+        final String limit = parameters.getOrDefault(PARAMETER_LIMIT, "0");
+        final String cursor = parameters.get(PARAMETER_CURSOR);
+        try {
+            return new PageRequest(sort, order.equals("desc"), Integer.parseInt(limit), cursor, this::isTiebreaker);
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterException(PARAMETER_LIMIT, limit);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidParameterException(PARAMETER_CURSOR, cursor);
+        }
+    }
+
+    /**
+     * Serializes the result of an invocation, either into a String or straight into the response (see {@link #isStreaming()}). A {@link StreamingResult} is always streamed.
+     *
+     * @param gson The {@link Gson} instance used for serialization.
+     * @param result The result to serialize. May be NULL!
+     * @param response The response object to stream the result to.
+     * @return The content to be set in the response.
+     */
+    private Object respond(Gson gson, Object result, Response response) throws IOException {
+        if (!this.isStreaming() && !(result instanceof StreamingResult)) {
+            return gson.toJson(result);
+        }
+        final JsonWriter writer = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8), STREAMING_BUFFER_SIZE));
+        if (result == null) {
+            writer.nullValue();
+        } else if (result instanceof StreamingResult) {
+            ((StreamingResult) result).write(gson, writer);
+        } else {
+            gson.toJson(result, result.getClass(), writer);
+        }
+        writer.flush();
+
+        /* The response has been committed, Spark won't write anything else. */
+        return "";
+    }
+}
@@ -0,0 +1,10 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.basic;
+
+public class PayloadTooLargeException extends ActionHandlerException {
+
+    private static final long serialVersionUID = 2871640305398134872L;
+
+    public PayloadTooLargeException(long limit) {
+        super("The request body exceeds the limit of " + limit + " bytes.");
+    }
+}
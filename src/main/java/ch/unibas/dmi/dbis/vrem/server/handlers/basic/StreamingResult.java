@@ -0,0 +1,59 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.basic;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.PageRequest;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Result of an invocation that writes itself to the response instead of being serialized as a whole. Used for large results that are produced incrementally, e.g. from a database cursor.
+ */
+@FunctionalInterface
+public interface StreamingResult {
+
+    /**
+     * Writes this result as JSON.
+     *
+     * @param gson The {@link Gson} instance used to serialize individual elements.
+     * @param writer The {@link JsonWriter} that writes to the response.
+     */
+    void write(Gson gson, JsonWriter writer) throws IOException;
+
+    /**
+     * Creates a {@link StreamingResult} for a single page of a listing. It is written as an object that holds the entries in an array and, if further pages exist, the cursor of the next page in {@code next}.
+     *
+     * @param name Name of the array that holds the entries.
+     * @param entries The entries; holds one entry more than the limit of the page if further pages exist. Iterators that are {@link Closeable} are closed.
+     * @param type Class of the entries.
+     * @param page The requested {@link PageRequest}.
+     * @param cursor Returns the cursor that identifies an entry, see {@link PageRequest#cursor(String, String)}.
+     */
+    static <T> StreamingResult page(String name, Iterable<T> entries, Class<T> type, PageRequest page, Function<T, String> cursor) {
+        return (gson, writer) -> {
+            final Iterator<T> iterator = entries.iterator();
+            try {
+                writer.beginObject();
+                writer.name(name).beginArray();
+                int count = 0;
+                T last = null;
+                while (iterator.hasNext() && (!page.isLimited() || count < page.limit)) {
+                    last = iterator.next();
+                    gson.toJson(last, type, writer);
+                    count++;
+                }
+                writer.endArray();
+                if (last != null && page.isLimited() && iterator.hasNext()) {
+                    writer.name("next").value(cursor.apply(last));
+                }
+                writer.endObject();
+            } finally {
+                if (iterator instanceof Closeable) {
+                    ((Closeable) iterator).close();
+                }
+            }
+        };
+    }
+}
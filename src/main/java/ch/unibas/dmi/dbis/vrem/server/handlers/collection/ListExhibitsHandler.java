@@ -1,11 +1,14 @@
 package ch.unibas.dmi.dbis.vrem.server.handlers.collection;
 
+import ch.unibas.dmi.dbis.vrem.database.dao.PageRequest;
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
-import ch.unibas.dmi.dbis.vrem.model.ListExhibitsResponse;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
 import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
 import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.StreamingResult;
 import java.util.List;
 import java.util.Map;
+import org.bson.types.ObjectId;
 
 public class ListExhibitsHandler extends ParsingActionHandler<List> {
 
@@ -20,9 +23,22 @@ public class ListExhibitsHandler extends ParsingActionHandler<List> {
     }
 
 
+    /**
+     * Lists exhibits sorted by {@code path} (default) or {@code name}; see {@link #pageRequest(Map, String...)} for the supported parameters.
+     */
     @Override
     public Object doGet(Map<String, String> parameters) throws ActionHandlerException {
-        return new ListExhibitsResponse(this.reader.listExhibits());
+        final PageRequest page = this.pageRequest(parameters, VREMReader.SORT_PATH, VREMReader.SORT_NAME);
+        final boolean byName = page.sort.equals(VREMReader.SORT_NAME);
+        return StreamingResult.page("exhibits", this.reader.listExhibits(page), Exhibit.class, page, e -> PageRequest.cursor(byName ? e.name : e.path, e.id));
+    }
+
+    /**
+     * Exhibits use their id as tiebreaker, since several exhibits may share a path.
+     */
+    @Override
+    protected boolean isTiebreaker(String tiebreaker) {
+        return ObjectId.isValid(tiebreaker);
     }
 
     @Override
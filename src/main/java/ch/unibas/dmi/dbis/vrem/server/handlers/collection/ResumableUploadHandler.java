@@ -0,0 +1,97 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.collection;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter;
+import ch.unibas.dmi.dbis.vrem.model.collection.ResumableUpload;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import ch.unibas.dmi.dbis.vrem.server.serialization.VREMGson;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Resumable, chunked upload of exhibits, see {@link UploadSessions}:
+ * <ul>
+ * <li>{@code POST /exhibits/uploads} with a {@link ResumableUpload} starts a session.</li>
+ * <li>{@code PUT /exhibits/uploads/:id?offset=n} writes the raw request body at the given offset. Chunks may be sent in parallel.</li>
+ * <li>{@code GET /exhibits/uploads/:id} returns the state of the session, including the ranges still missing.</li>
+ * <li>{@code POST /exhibits/uploads/:id/finish} registers the exhibit once all bytes have been received.</li>
+ * <li>{@code DELETE /exhibits/uploads/:id} aborts the session.</li>
+ * </ul>
+ */
+public class ResumableUploadHandler extends ParsingActionHandler<ResumableUpload> {
+
+    public final static String PARAMETER_OFFSET = "offset";
+
+    private final static String ATTRIBUTE_ID = ":id";
+
+    private final VREMWriter writer;
+
+    private final UploadSessions sessions;
+
+    public ResumableUploadHandler(VREMWriter writer, UploadSessions sessions) {
+        this.writer = writer;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Chunks are written straight from the request body; all other requests are handled as usual.
+     */
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        if (!request.requestMethod().equals("PUT")) {
+            return super.handle(request, response);
+        }
+        final Map<String, String> parameters = this.parameters(request);
+        final String offset = parameters.get(PARAMETER_OFFSET);
+        final ResumableUpload status;
+        try (InputStream in = body(request)) {
+            status = this.sessions.write(parameters.get(ATTRIBUTE_ID), Long.parseLong(offset), in);
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterException(PARAMETER_OFFSET, offset);
+        }
+        response.type("application/json");
+        return VREMGson.gson().toJson(status);
+    }
+
+    @Override
+    public ResumableUpload doGet(Map<String, String> parameters) throws ActionHandlerException {
+        return this.sessions.status(parameters.get(ATTRIBUTE_ID));
+    }
+
+    /**
+     * Starts a session or, if addressed to an existing session, finishes it.
+     */
+    @Override
+    public Object doPost(ResumableUpload upload, Map<String, String> parameters) throws ActionHandlerException {
+        try {
+            if (parameters.containsKey(ATTRIBUTE_ID)) {
+                return this.sessions.finish(parameters.get(ATTRIBUTE_ID), this.writer);
+            }
+            if (upload == null) {
+                throw new InvalidParameterException("The request does not describe an upload.");
+            }
+            return this.sessions.create(upload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void doDelete(Map<String, String> parameters) throws ActionHandlerException {
+        try {
+            this.sessions.abort(parameters.get(ATTRIBUTE_ID));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Class<ResumableUpload> inClass() {
+        return ResumableUpload.class;
+    }
+}
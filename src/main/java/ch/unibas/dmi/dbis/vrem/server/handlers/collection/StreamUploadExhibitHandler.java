@@ -0,0 +1,172 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.collection;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter;
+import ch.unibas.dmi.dbis.vrem.model.collection.ExhibitUpload;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
+import ch.unibas.dmi.dbis.vrem.model.objects.CulturalHeritageObject.CHOType;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.PayloadTooLargeException;
+import ch.unibas.dmi.dbis.vrem.server.serialization.VREMGson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.ServletException;
+import javax.servlet.http.Part;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Uploads an exhibit without encoding it into JSON. The file is streamed to disk through a bounded buffer (see {@link UploadStorage}), so that large scans can be uploaded without holding them in memory.
+ * <p>
+ * Two request formats are supported:
+ * <ul>
+ * <li>{@code multipart/form-data} with a part {@value #PART_UPLOAD} holding the {@link ExhibitUpload} as JSON (without {@link ExhibitUpload#file}) and a part {@value #PART_FILE} holding the file.</li>
+ * <li>Any other content type, in which case the body is the file and the {@link ExhibitUpload} is described by the query parameters {@value #PARAMETER_COLLECTION}, {@value #PARAMETER_EXTENSION}, {@value #PARAMETER_NAME} and {@value #PARAMETER_DESCRIPTION}.</li>
+ * </ul>
+ */
+public class StreamUploadExhibitHandler extends ParsingActionHandler<ExhibitUpload> {
+
+    public final static String PART_UPLOAD = "upload";
+    public final static String PART_FILE = "file";
+
+    public final static String PARAMETER_COLLECTION = "collection";
+    public final static String PARAMETER_EXTENSION = "extension";
+    public final static String PARAMETER_NAME = "name";
+    public final static String PARAMETER_DESCRIPTION = "description";
+
+    /**
+     * Request attribute that enables multipart parsing in Jetty.
+     */
+    private final static String MULTIPART_CONFIG = "org.eclipse.jetty.multipartConfig";
+
+    /**
+     * Parts larger than this are spooled to disk by Jetty.
+     */
+    private final static int MULTIPART_THRESHOLD = 1024 * 1024;
+
+    private final static Logger LOGGER = LogManager.getLogger(StreamUploadExhibitHandler.class);
+
+    private final VREMWriter writer;
+
+    private final UploadStorage storage;
+
+    public StreamUploadExhibitHandler(VREMWriter writer, UploadStorage storage) {
+        this.writer = writer;
+        this.storage = storage;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        if (!request.requestMethod().equals("POST")) {
+            return super.handle(request, response);
+        }
+        final String contentType = request.contentType();
+        final Path temporary = this.storage.createTemporary();
+        try {
+            final Received received;
+            if (contentType != null && contentType.startsWith("multipart/form-data")) {
+                received = this.receiveMultipart(request, temporary);
+            } else {
+                received = this.receive(request, temporary);
+            }
+
+            final ExhibitUpload upload = received.upload;
+            final String path = this.storage.store(temporary, received.digest, upload.fileExtension);
+            upload.exhibit.path = this.writer.uploadExhibit(upload, path);
+            LOGGER.debug("Stored uploaded exhibit {}", path);
+
+            response.type("application/json");
+            return VREMGson.gson().toJson(upload);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Receives a raw upload; the exhibit is described by query parameters.
+     */
+    private Received receive(Request request, Path temporary) throws IOException, ActionHandlerException {
+        final Map<String, String> parameters = this.parameters(request);
+        final ExhibitUpload upload = new ExhibitUpload(parameters.get(PARAMETER_COLLECTION), new Exhibit(parameters.get(PARAMETER_NAME), parameters.get(PARAMETER_DESCRIPTION), null, CHOType.IMAGE), null, parameters.get(PARAMETER_EXTENSION));
+        UploadStorage.validate(upload.artCollection, upload.fileExtension);
+
+        if (request.raw().getContentLengthLong() > this.storage.getMaxSize()) {
+            throw new PayloadTooLargeException(this.storage.getMaxSize());
+        }
+        try (InputStream in = body(request)) {
+            return new Received(upload, this.storage.write(in, temporary));
+        }
+    }
+
+    /**
+     * Receives a multipart upload. Jetty spools large parts to the upload directory while parsing.
+     */
+    private Received receiveMultipart(Request request, Path temporary) throws IOException, ServletException, ActionHandlerException {
+        request.attribute(MULTIPART_CONFIG, new MultipartConfigElement(this.storage.directory().toString(), this.storage.getMaxSize(), -1L, MULTIPART_THRESHOLD));
+        final Part metadata;
+        final Part file;
+        try {
+            metadata = request.raw().getPart(PART_UPLOAD);
+            file = request.raw().getPart(PART_FILE);
+        } catch (IllegalStateException e) {
+            /* Jetty signals parts that exceed the maximum size this way. */
+            throw new PayloadTooLargeException(this.storage.getMaxSize());
+        }
+        try {
+            if (metadata == null || file == null) {
+                throw new InvalidParameterException("Multipart uploads require the parts '" + PART_UPLOAD + "' and '" + PART_FILE + "'.");
+            }
+            final ExhibitUpload upload;
+            try (Reader reader = new InputStreamReader(metadata.getInputStream(), StandardCharsets.UTF_8)) {
+                upload = VREMGson.gson().fromJson(reader, ExhibitUpload.class);
+            } catch (JsonParseException e) {
+                throw new InvalidParameterException(PART_UPLOAD, e.getMessage());
+            }
+            if (upload == null || upload.exhibit == null) {
+                throw new InvalidParameterException("The part '" + PART_UPLOAD + "' must describe an exhibit.");
+            }
+            UploadStorage.validate(upload.artCollection, upload.fileExtension);
+            try (InputStream in = file.getInputStream()) {
+                return new Received(upload, this.storage.write(in, temporary));
+            }
+        } finally {
+            if (metadata != null) {
+                metadata.delete();
+            }
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    @Override
+    public Class<ExhibitUpload> inClass() {
+        return ExhibitUpload.class;
+    }
+
+    /**
+     * A received upload and the SHA-256 digest computed while writing it.
+     */
+    private static class Received {
+
+        private final ExhibitUpload upload;
+
+        private final String digest;
+
+        private Received(ExhibitUpload upload, String digest) {
+            this.upload = upload;
+            this.digest = digest;
+        }
+    }
+}
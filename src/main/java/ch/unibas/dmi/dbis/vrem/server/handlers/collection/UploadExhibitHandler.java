@@ -2,11 +2,14 @@ package ch.unibas.dmi.dbis.vrem.server.handlers.collection;
 
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter;
 import ch.unibas.dmi.dbis.vrem.model.collection.ExhibitUpload;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
 import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Base64;
 import java.util.Map;
@@ -14,35 +17,31 @@ import java.util.Map;
 public class UploadExhibitHandler extends ParsingActionHandler<ExhibitUpload> {
 
     private final VREMWriter writer;
-    private final Path docRoot;
+    private final UploadStorage storage;
 
-    public UploadExhibitHandler(VREMWriter writer, Path docRoot) {
+    public UploadExhibitHandler(VREMWriter writer, UploadStorage storage) {
         this.writer = writer;
-        this.docRoot = docRoot;
+        this.storage = storage;
     }
 
     @Override
-    public ExhibitUpload doPost(ExhibitUpload exhibitUpload, Map<String, String> parameters) {
+    public ExhibitUpload doPost(ExhibitUpload exhibitUpload, Map<String, String> parameters) throws ActionHandlerException {
+        UploadStorage.validate(exhibitUpload.artCollection, exhibitUpload.fileExtension);
 
-        String path = this.writer.uploadExhibit(exhibitUpload);
-
-        // Save file to disk.
         String base64Image = exhibitUpload.file.split(",")[1];
         byte[] decodedImage = Base64.getDecoder().decode(base64Image.getBytes(StandardCharsets.UTF_8));
 
-        // Create directory for ArtCollection if it doesn't already exist.
-        File dir = new File(docRoot + "/" + exhibitUpload.artCollection);
-        if (!dir.exists()) {
-            dir.mkdir();
-        }
-
-        // Save the file to the directory.
+        // Save the file as a content-addressed blob, see UploadStorage.
         try {
-            FileOutputStream fos = new FileOutputStream(docRoot + "/" + path);
-            fos.write(decodedImage);
-            fos.close();
+            final Path temporary = this.storage.createTemporary();
+            try (InputStream in = new ByteArrayInputStream(decodedImage)) {
+                final String path = this.storage.store(temporary, this.storage.write(in, temporary), exhibitUpload.fileExtension);
+                exhibitUpload.exhibit.path = this.writer.uploadExhibit(exhibitUpload, path);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException(e);
         }
 
         return exhibitUpload;
@@ -0,0 +1,324 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.collection;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter;
+import ch.unibas.dmi.dbis.vrem.model.collection.ExhibitUpload;
+import ch.unibas.dmi.dbis.vrem.model.collection.ResumableUpload;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ConflictException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.PayloadTooLargeException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps track of {@link ResumableUpload}s in progress.
+ * <p>
+ * Every session owns a temporary file (see {@link UploadStorage}) that chunks are written into at their offset using positional {@link FileChannel} writes, so chunks may arrive in any order and in parallel. The ranges that have been received are tracked, so that a client can find out what to resend after a failure. Sessions live in memory only and are discarded after they have been idle for too long; idle sessions are looked for periodically and whenever a session is accessed.
+ */
+public class UploadSessions {
+
+    private static final Logger LOGGER = LogManager.getLogger(UploadSessions.class);
+
+    /**
+     * Size of the buffer used to copy chunks.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UploadStorage storage;
+
+    /**
+     * Number of milliseconds after which an idle session is discarded.
+     */
+    private final long timeout;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Periodically discards idle sessions, see {@link #expire()}.
+     */
+    private final ScheduledExecutorService expiry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "upload-session-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param timeout Number of milliseconds after which an idle session is discarded.
+     */
+    public UploadSessions(UploadStorage storage, long timeout) {
+        this.storage = storage;
+        this.timeout = timeout;
+        final long period = Math.max(1000, Math.min(timeout, 60 * 1000));
+        this.expiry.scheduleWithFixedDelay(this::expire, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a new session for the described upload.
+     *
+     * @return The state of the new session.
+     */
+    public ResumableUpload create(ResumableUpload upload) throws IOException, ActionHandlerException {
+        if (upload.exhibit == null) {
+            throw new InvalidParameterException("The upload must describe an exhibit.");
+        }
+        UploadStorage.validate(upload.artCollection, upload.fileExtension);
+        if (upload.length <= 0) {
+            throw new InvalidParameterException("length", Long.toString(upload.length));
+        }
+        if (upload.length > this.storage.getMaxSize()) {
+            throw new PayloadTooLargeException(this.storage.getMaxSize());
+        }
+
+        final Path file = this.storage.createTemporary();
+        final Session session;
+        try {
+            session = new Session(new ResumableUpload(UUID.randomUUID().toString(), upload.artCollection, upload.exhibit, upload.fileExtension, upload.length), file, FileChannel.open(file, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        this.sessions.put(session.upload.id, session);
+        LOGGER.debug("Started upload session {} for {} bytes", session.upload.id, upload.length);
+        return session.status();
+    }
+
+    /**
+     * Returns the state of a session.
+     */
+    public ResumableUpload status(String id) throws ActionHandlerException {
+        return this.session(id).status();
+    }
+
+    /**
+     * Writes a chunk read from the given stream, starting at the given offset. Chunks may overlap; the last one written wins.
+     *
+     * @return The state of the session after the chunk has been written.
+     */
+    public ResumableUpload write(String id, long offset, InputStream in) throws IOException, ActionHandlerException {
+        final Session session = this.session(id);
+        if (offset < 0 || offset >= session.upload.length) {
+            throw new InvalidParameterException("offset", Long.toString(offset));
+        }
+        session.begin();
+        long position = offset;
+        try {
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            int read;
+            while ((read = in.read(buffer.array())) >= 0) {
+                if (position + read > session.upload.length) {
+                    throw new InvalidParameterException("The chunk at offset " + offset + " exceeds the length of the upload.");
+                }
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    position += session.channel.write(buffer, position);
+                }
+            }
+        } finally {
+            /* Bytes written before a failure count as well, so that the client only resends the rest. */
+            session.end(offset, position);
+        }
+        return session.status();
+    }
+
+    /**
+     * Closes a complete session, stores the file as a blob (see {@link UploadStorage}) and registers the exhibit using the {@link VREMWriter}. Since chunks may have been written in any order, the digest is computed from the finished file.
+     *
+     * @return The {@link ExhibitUpload} described by the session; its exhibit carries the final path.
+     * @throws ConflictException If chunks are still being written or missing.
+     */
+    public ExhibitUpload finish(String id, VREMWriter writer) throws IOException, ActionHandlerException {
+        final Session session = this.session(id);
+        session.close(true);
+        this.sessions.remove(id, session);
+        try {
+            final ExhibitUpload upload = new ExhibitUpload(session.upload.artCollection, session.upload.exhibit, null, session.upload.fileExtension);
+            final String path = this.storage.store(session.file, this.storage.digest(session.file), upload.fileExtension);
+            upload.exhibit.path = writer.uploadExhibit(upload, path);
+            LOGGER.debug("Finished upload session {} as {}", id, path);
+            return upload;
+        } finally {
+            Files.deleteIfExists(session.file);
+        }
+    }
+
+    /**
+     * Discards a session and its file.
+     */
+    public void abort(String id) throws IOException, ActionHandlerException {
+        final Session session = this.session(id);
+        session.close(false);
+        this.sessions.remove(id, session);
+        Files.deleteIfExists(session.file);
+    }
+
+    /**
+     * Discards all sessions that have been idle for longer than the timeout.
+     */
+    private void expire() {
+        final long now = System.currentTimeMillis();
+        for (Session session : this.sessions.values()) {
+            this.expire(session, now);
+        }
+    }
+
+    /**
+     * Discards the given session and its file if it has been idle for longer than the timeout.
+     *
+     * @return True if the session has been discarded.
+     */
+    private boolean expire(Session session, long now) {
+        try {
+            if (!session.closeIfIdle(now, this.timeout)) {
+                return false;
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close idle upload session {}: {}", session.upload.id, e.getMessage());
+        }
+        this.sessions.remove(session.upload.id, session);
+        try {
+            Files.deleteIfExists(session.file);
+            LOGGER.debug("Discarded idle upload session {}", session.upload.id);
+        } catch (IOException e) {
+            LOGGER.debug("Failed to discard idle upload session {}: {}", session.upload.id, e.getMessage());
+        }
+        return true;
+    }
+
+    private Session session(String id) throws InvalidParameterException {
+        Session session = id == null ? null : this.sessions.get(id);
+        if (session != null && this.expire(session, System.currentTimeMillis())) {
+            session = null;
+        }
+        if (session == null) {
+            throw new InvalidParameterException("Unknown or expired upload session '" + id + "'.");
+        }
+        return session;
+    }
+
+    /**
+     * A single upload in progress.
+     */
+    private static class Session {
+
+        private final ResumableUpload upload;
+
+        private final Path file;
+
+        /**
+         * Shared by all writers; positional writes don't interfere with each other.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Received byte ranges, i.e. start offset mapped to end offset (exclusive). Adjacent and overlapping ranges are merged. Guarded by this.
+         */
+        private final TreeMap<Long, Long> received = new TreeMap<>();
+
+        /**
+         * Number of chunks currently being written. Guarded by this.
+         */
+        private int writers;
+
+        /**
+         * True once the session has been finished or aborted. Guarded by this.
+         */
+        private boolean closed;
+
+        private volatile long touched = System.currentTimeMillis();
+
+        private Session(ResumableUpload upload, Path file, FileChannel channel) {
+            this.upload = upload;
+            this.file = file;
+            this.channel = channel;
+        }
+
+        private synchronized void begin() throws ConflictException {
+            if (this.closed) {
+                throw new ConflictException("The upload session '" + this.upload.id + "' has been closed.");
+            }
+            this.writers++;
+            this.touched = System.currentTimeMillis();
+        }
+
+        private synchronized void end(long start, long end) {
+            this.writers--;
+            this.touched = System.currentTimeMillis();
+            if (end <= start) {
+                return;
+            }
+            final Map.Entry<Long, Long> before = this.received.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> after = this.received.ceilingEntry(start);
+            while (after != null && after.getKey() <= end) {
+                end = Math.max(end, after.getValue());
+                this.received.remove(after.getKey());
+                after = this.received.higherEntry(after.getKey());
+            }
+            this.received.put(start, end);
+        }
+
+        /**
+         * Closes this session if no chunk is being written and it hasn't been touched for longer than the given timeout. Checking and closing happen atomically, so that no chunk can begin in between.
+         *
+         * @return True if this session has been closed; false if it is in use or has already been closed.
+         */
+        private synchronized boolean closeIfIdle(long now, long timeout) throws IOException {
+            if (this.closed || this.writers > 0 || now - this.touched <= timeout) {
+                return false;
+            }
+            this.closed = true;
+            this.channel.close();
+            return true;
+        }
+
+        /**
+         * @param complete True if the upload must have been received completely.
+         */
+        private synchronized void close(boolean complete) throws IOException, ConflictException {
+            if (this.closed) {
+                throw new ConflictException("The upload session '" + this.upload.id + "' has been closed.");
+            }
+            if (complete && this.writers > 0) {
+                throw new ConflictException("Chunks of upload session '" + this.upload.id + "' are still being written.");
+            }
+            if (complete && this.received.getOrDefault(0L, 0L) < this.upload.length) {
+                throw new ConflictException("Upload session '" + this.upload.id + "' is incomplete.");
+            }
+            this.closed = true;
+            this.channel.close();
+        }
+
+        private synchronized ResumableUpload status() {
+            final ResumableUpload status = new ResumableUpload(this.upload.id, this.upload.artCollection, this.upload.exhibit, this.upload.fileExtension, this.upload.length);
+            long position = 0;
+            for (Map.Entry<Long, Long> range : this.received.entrySet()) {
+                if (range.getKey() > position) {
+                    status.missing.add(new ResumableUpload.Range(position, range.getKey() - position));
+                }
+                status.received += range.getValue() - range.getKey();
+                position = range.getValue();
+            }
+            if (position < this.upload.length) {
+                status.missing.add(new ResumableUpload.Range(position, this.upload.length - position));
+            }
+            return status;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.collection;
+
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.PayloadTooLargeException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * Stores uploaded exhibit files below the document root.
+ * <p>
+ * Uploads are streamed into a temporary file outside the document root through a fixed-size buffer, so that the heap usage of an upload doesn't depend on its size. The SHA-256 digest is computed while streaming, and the finished file is moved into a content-addressed blob under {@value #BLOB_DIRECTORY}; identical uploads share a single blob. Since a blob never changes, it can be cached by clients forever. Readers never see a partially written file.
+ */
+public class UploadStorage {
+
+    /**
+     * Name of the directory below the document root that holds content-addressed blobs.
+     */
+    public static final String BLOB_DIRECTORY = "blobs";
+
+    /**
+     * Size of the buffer used to copy uploads.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Valid names of art collections; they are used as directory names.
+     */
+    private static final Pattern COLLECTION = Pattern.compile("[\\w-][\\w .-]*");
+
+    /**
+     * Valid file extensions.
+     */
+    private static final Pattern EXTENSION = Pattern.compile("[A-Za-z0-9]{1,10}");
+
+    private final Path docRoot;
+
+    /**
+     * Directory that holds uploads in progress. It is outside the document root, so that incomplete uploads are neither served nor noticed by the {@link ch.unibas.dmi.dbis.vrem.server.handlers.content.ContentCache}; if it is on the same file system, moving a finished upload is cheap.
+     */
+    private final Path uploads;
+
+    /**
+     * Maximum size of an uploaded file in bytes.
+     */
+    private final long maxSize;
+
+    /**
+     * @param uploads Directory that holds uploads in progress; must not be below the document root.
+     * @param maxSize Maximum size of an uploaded file in bytes.
+     * @throws IllegalArgumentException If the upload directory is below the document root.
+     */
+    public UploadStorage(Path docRoot, Path uploads, long maxSize) {
+        if (uploads.toAbsolutePath().normalize().startsWith(docRoot.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("The upload directory must not be below the document root.");
+        }
+        this.docRoot = docRoot;
+        this.uploads = uploads;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the directory that holds uploads in progress, creating it if necessary.
+     */
+    public Path directory() throws IOException {
+        return Files.createDirectories(this.uploads);
+    }
+
+    /**
+     * Returns the maximum size of an uploaded file in bytes.
+     */
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Creates an empty temporary file for a new upload.
+     */
+    public Path createTemporary() throws IOException {
+        return Files.createTempFile(this.directory(), "upload-", ".tmp");
+    }
+
+    /**
+     * Copies the stream to the given file, replacing its content.
+     *
+     * @return Hex encoded SHA-256 digest of the written bytes.
+     * @throws PayloadTooLargeException If the stream is larger than the maximum size. The file is left incomplete!
+     */
+    public String write(InputStream in, Path file) throws IOException, PayloadTooLargeException {
+        final MessageDigest digest = sha256();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                written += read;
+                if (written > this.maxSize) {
+                    throw new PayloadTooLargeException(this.maxSize);
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Computes the SHA-256 digest of a file; used for uploads that were not written sequentially.
+     *
+     * @return Hex encoded SHA-256 digest.
+     */
+    public String digest(Path file) throws IOException {
+        final MessageDigest digest = sha256();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Moves a completely written upload into the blob with the given digest. If that blob already exists, the upload is discarded instead.
+     *
+     * @param digest Hex encoded SHA-256 digest of the upload.
+     * @param extension File extension of the upload; kept so that the content type can be determined.
+     * @return Path of the blob relative to the document root.
+     */
+    public String store(Path temporary, String digest, String extension) throws IOException {
+        final String path = BLOB_DIRECTORY + "/" + digest.substring(0, 2) + "/" + digest + "." + extension.toLowerCase();
+        final Path target = this.docRoot.resolve(path);
+        if (Files.exists(target)) {
+            Files.deleteIfExists(temporary);
+            return path;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            /* The upload directory is on another file system: copy next to the blob first, so that the blob itself still appears atomically. */
+            final Path staged = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            Files.move(temporary, staged, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return path;
+    }
+
+    /**
+     * Checks that the name of an art collection and a file extension can safely be used to build a path.
+     *
+     * @throws InvalidParameterException If either of them is invalid.
+     */
+    public static void validate(String collection, String extension) throws InvalidParameterException {
+        if (collection == null || !COLLECTION.matcher(collection).matches()) {
+            throw new InvalidParameterException("collection", collection);
+        }
+        if (extension == null || !EXTENSION.matcher(extension).matches()) {
+            throw new InvalidParameterException("extension", extension);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            /* Every Java platform is required to support SHA-256. */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.content;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single range of bytes as requested by a HTTP {@code Range} header (RFC 7233). Both positions are inclusive.
+ */
+public class ByteRange {
+
+    /**
+     * The only range unit supported.
+     */
+    public static final String UNIT = "bytes";
+
+    /**
+     * Maximum number of ranges served in a single response. Requests for more ranges are answered with the full content.
+     */
+    public static final int MAX_RANGES = 16;
+
+    /**
+     * Position of the first byte.
+     */
+    public final long first;
+
+    /**
+     * Position of the last byte.
+     */
+    public final long last;
+
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Returns the number of bytes in this range.
+     */
+    public long length() {
+        return this.last - this.first + 1;
+    }
+
+    /**
+     * Returns the value of the {@code Content-Range} header for this range.
+     *
+     * @param total Total length of the content.
+     */
+    public String contentRange(long total) {
+        return UNIT + " " + this.first + "-" + this.last + "/" + total;
+    }
+
+    /**
+     * Parses the value of a {@code Range} header.
+     *
+     * @param header Value of the {@code Range} header. May be NULL!
+     * @param length Total length of the content.
+     * @return NULL if the header is absent, malformed or requests too many ranges (in which case it must be ignored), an empty list if no range is satisfiable, otherwise the satisfiable ranges in the requested order.
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (header == null || !header.startsWith(UNIT + "=")) {
+            return null;
+        }
+        final String[] specs = header.substring(UNIT.length() + 1).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        final List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            final String trimmed = spec.trim();
+            final int dash = trimmed.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                final String from = trimmed.substring(0, dash).trim();
+                final String to = trimmed.substring(dash + 1).trim();
+                if (from.isEmpty()) {
+                    /* Suffix range, i.e. the last n bytes. */
+                    final long suffix = Long.parseLong(to);
+                    if (suffix < 0) {
+                        return null;
+                    } else if (suffix > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+                    }
+                } else {
+                    final long first = Long.parseLong(from);
+                    final long last = to.isEmpty() ? length - 1 : Long.parseLong(to);
+                    if (first < 0 || last < first) {
+                        return null;
+                    } else if (first < length) {
+                        ranges.add(new ByteRange(first, Math.min(last, length - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return Collections.unmodifiableList(ranges);
+    }
+}
@@ -0,0 +1,102 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.content;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Determines the {@code Cache-Control} header for content, based on its content type. Content in immutable directories (e.g. content-addressed blobs) never changes and may be cached forever.
+ */
+public class CachePolicy {
+
+    /**
+     * Key matching every content type.
+     */
+    public static final String WILDCARD = "*";
+
+    /**
+     * Sent when no max-age is configured; clients have to revalidate on every use.
+     */
+    private static final String NO_CACHE = "no-cache";
+
+    /**
+     * Sent for content in immutable directories; one year is the customary maximum.
+     */
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    /**
+     * Max-age in seconds by content type, wildcard subtype or {@link #WILDCARD}.
+     */
+    private final Map<String, Long> maxAge;
+
+    /**
+     * Resolved headers by content type.
+     */
+    private final ConcurrentHashMap<String, String> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * Directories relative to the document root, each with a trailing slash, whose content never changes.
+     */
+    private final List<String> immutable = new ArrayList<>();
+
+    /**
+     * @param maxAge Max-age in seconds by content type (e.g. {@code image/png}), wildcard subtype (e.g. {@code image/*}) or {@link #WILDCARD}. May be NULL!
+     */
+    public CachePolicy(Map<String, Long> maxAge) {
+        this(maxAge, null);
+    }
+
+    /**
+     * @param maxAge Max-age in seconds by content type (e.g. {@code image/png}), wildcard subtype (e.g. {@code image/*}) or {@link #WILDCARD}. May be NULL!
+     * @param immutable Directories relative to the document root whose content never changes. May be NULL!
+     */
+    public CachePolicy(Map<String, Long> maxAge, List<String> immutable) {
+        this.maxAge = maxAge == null ? new HashMap<>() : new HashMap<>(maxAge);
+        if (immutable != null) {
+            for (String directory : immutable) {
+                this.immutable.add(directory.endsWith("/") ? directory : directory + "/");
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the {@code Cache-Control} header for the content at the given path.
+     *
+     * @param path Path of the content relative to the document root, using forward slashes.
+     * @param type The content type. May be NULL!
+     */
+    public String cacheControl(String path, String type) {
+        for (String directory : this.immutable) {
+            if (path.startsWith(directory)) {
+                return IMMUTABLE;
+            }
+        }
+        return this.cacheControl(type);
+    }
+
+    /**
+     * Returns the value of the {@code Cache-Control} header for the given content type.
+     *
+     * @param type The content type. May be NULL!
+     */
+    public String cacheControl(String type) {
+        return this.resolved.computeIfAbsent(type == null ? "" : type, this::resolve);
+    }
+
+    private String resolve(String type) {
+        Long seconds = this.maxAge.get(type);
+        final int slash = type.indexOf('/');
+        if (seconds == null && slash > 0) {
+            seconds = this.maxAge.get(type.substring(0, slash) + "/" + WILDCARD);
+        }
+        if (seconds == null) {
+            seconds = this.maxAge.get(WILDCARD);
+        }
+        if (seconds == null || seconds <= 0) {
+            return NO_CACHE;
+        }
+        return "public, max-age=" + seconds;
+    }
+}
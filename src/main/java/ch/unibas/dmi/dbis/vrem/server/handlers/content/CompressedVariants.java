@@ -0,0 +1,177 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.content;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Manages precompressed variants of content files, which are stored as siblings of the original file (e.g. {@code model.obj.gz} next to {@code model.obj}).
+ * <p>
+ * Brotli ({@code .br}) variants are served if present. Gzip ({@code .gz}) variants can additionally be generated in the background the first time a compressible file is requested.
+ */
+public class CompressedVariants {
+
+    private static final Logger LOGGER = LogManager.getLogger(CompressedVariants.class);
+
+    /**
+     * Supported content codings in order of preference.
+     */
+    public static final List<Encoding> ENCODINGS = Collections.unmodifiableList(Arrays.asList(new Encoding("br", ".br"), new Encoding("gzip", ".gz")));
+
+    /**
+     * Files smaller than this are not worth compressing.
+     */
+    private static final long MIN_SIZE = 1024;
+
+    /**
+     * Maximum number of pending compression tasks; further requests are dropped until the queue drains.
+     */
+    private static final int MAX_PENDING = 256;
+
+    /**
+     * Content types that are not covered by the {@code text/*} rule but compress well.
+     */
+    private static final Set<String> COMPRESSIBLE = new HashSet<>(Arrays.asList("application/json", "application/javascript", "image/svg+xml", "image/bmp", "model/gltf+json", "model/obj", "model/mtl", "model/stl"));
+
+    /**
+     * Generates gzip variants in the background; NULL if generation is disabled.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Files for which a variant is currently being generated.
+     */
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Directories in which no variant could be written (e.g. read-only or owned by another user); these are not tried again.
+     */
+    private final Set<Path> unwritable = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param generate True if missing gzip variants should be generated in the background.
+     */
+    public CompressedVariants(boolean generate) {
+        if (generate) {
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING), r -> {
+                final Thread thread = new Thread(r, "content-compressor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Checks whether content of the given type benefits from compression.
+     */
+    public boolean isCompressible(String type) {
+        return type != null && (type.startsWith("text/") || COMPRESSIBLE.contains(type));
+    }
+
+    /**
+     * Schedules the generation of a gzip variant for the given file, unless one is already being generated or its directory is not writable.
+     *
+     * @param file Absolute path of the original file.
+     * @param size Size of the original file in bytes.
+     */
+    public void generate(Path file, long size) {
+        if (this.executor == null || size < MIN_SIZE || this.unwritable.contains(file.getParent()) || !this.pending.add(file)) {
+            return;
+        }
+        try {
+            this.executor.execute(() -> {
+                try {
+                    this.compress(file);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not compress {}: {}", file, e.getMessage());
+                } finally {
+                    this.pending.remove(file);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.pending.remove(file);
+        }
+    }
+
+    /**
+     * Writes the gzip variant of a file to a temporary file and moves it into place once complete, so that partial variants are never served.
+     */
+    private void compress(Path file) throws IOException {
+        final Path target = file.resolveSibling(file.getFileName() + ".gz");
+        final Path temporary;
+        try {
+            temporary = Files.createTempFile(file.getParent(), ".", ".gz.tmp");
+        } catch (IOException e) {
+            /* Remember the directory, so that a read-only docroot is reported once instead of on every request. */
+            if (this.unwritable.add(file.getParent())) {
+                LOGGER.warn("Could not write gzip variants to {}, no longer trying: {}", file.getParent(), e.getMessage());
+            }
+            return;
+        }
+        try {
+            try (final InputStream in = Files.newInputStream(file); final OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024) {
+                {
+                    this.def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                final byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Generated gzip variant {}", target);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * A content coding and the file suffix of its variants.
+     */
+    public static class Encoding {
+
+        /**
+         * Name of the content coding, as used in {@code Accept-Encoding} and {@code Content-Encoding}.
+         */
+        public final String name;
+
+        /**
+         * Suffix appended to the original file name.
+         */
+        public final String suffix;
+
+        private Encoding(String name, String suffix) {
+            this.name = name;
+            this.suffix = suffix;
+        }
+
+        /**
+         * Returns the path of this variant of the given file.
+         */
+        public Path variant(Path file) {
+            return file.resolveSibling(file.getFileName() + this.suffix);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.content;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import ch.unibas.dmi.dbis.vrem.cache.CacheStatistics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Size-bounded, least-recently-used cache that keeps small files of the document root in direct (off-heap) {@link ByteBuffer}s, together with the metadata needed to serve them.
+ * <p>
+ * Serving a hit does not touch the file system. Entries are invalidated by a {@link WatchService} that observes the entire document root.
+ */
+public class ContentCache implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(ContentCache.class);
+
+    /**
+     * Root of the observed file tree.
+     */
+    private final Path root;
+
+    /**
+     * Maximum number of bytes held by this cache.
+     */
+    private final long capacity;
+
+    /**
+     * Maximum size of a single file held by this cache.
+     */
+    private final long threshold;
+
+    /**
+     * Cached files in access-order, keyed by absolute, normalized path. Guarded by this.
+     */
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Number of bytes currently held by this cache. Guarded by this.
+     */
+    private long used = 0;
+
+    /**
+     * Incremented on every invalidation; loads that overlap with an invalidation are not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final WatchService watcher;
+
+    /**
+     * @param root Root of the file tree to serve; it is observed for changes.
+     * @param capacity Maximum number of bytes held by this cache.
+     * @param threshold Maximum size of a single file held by this cache.
+     */
+    public ContentCache(Path root, long capacity, long threshold) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.capacity = capacity;
+        this.threshold = Math.min(threshold, capacity);
+        this.watcher = this.root.getFileSystem().newWatchService();
+        this.register(this.root);
+        final Thread thread = new Thread(this::watch, "content-cache-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the cached entry for the given file.
+     *
+     * @param path Absolute, normalized path of the file.
+     * @return {@link Entry} or NULL, if the file is not cached.
+     */
+    public Entry get(Path path) {
+        final Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(path);
+        }
+        if (entry != null) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Checks whether a file of the given size is eligible for caching.
+     */
+    public boolean accepts(long size) {
+        return size <= this.threshold;
+    }
+
+    /**
+     * Reads a file into a direct buffer and adds it to this cache.
+     *
+     * @param path Absolute, normalized path of the file.
+     * @param type Content type of the file.
+     * @param modified Last modification of the file in milliseconds since the epoch.
+     * @param etag Entity tag of the file.
+     * @return The new {@link Entry}.
+     */
+    public Entry load(Path path, String type, long modified, String etag) throws IOException {
+        final long generation = this.generation.get();
+        final ByteBuffer data;
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (!this.accepts(size)) {
+                throw new IOException("File " + path + " is too large to be cached (" + size + " bytes).");
+            }
+            data = ByteBuffer.allocateDirect((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    break;
+                }
+            }
+            data.flip();
+        }
+        final Entry entry = new Entry(data.asReadOnlyBuffer(), type, modified, etag);
+        synchronized (this) {
+            if (this.generation.get() == generation) {
+                final Entry previous = this.entries.put(path, entry);
+                if (previous != null) {
+                    this.used -= previous.length;
+                }
+                this.used += entry.length;
+                this.evict();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Removes the given file or, if it is a directory, all files below it from this cache.
+     */
+    public synchronized void invalidate(Path path) {
+        this.generation.incrementAndGet();
+        final Iterator<Map.Entry<Path, Entry>> iterator = this.entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Path, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(path)) {
+                this.used -= entry.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    public synchronized void clear() {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+        this.used = 0;
+    }
+
+    /**
+     * Returns a snapshot of this cache's statistics; size and capacity are expressed in bytes.
+     */
+    public synchronized CacheStatistics statistics() {
+        return new CacheStatistics(this.hits.get(), this.misses.get(), this.evictions.get(), this.used, this.capacity);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watcher.close();
+        this.clear();
+    }
+
+    /**
+     * Evicts least-recently-used entries until this cache fits its capacity. Must be called while holding the lock.
+     */
+    private void evict() {
+        final Iterator<Entry> iterator = this.entries.values().iterator();
+        while (this.used > this.capacity && iterator.hasNext()) {
+            this.used -= iterator.next().length;
+            iterator.remove();
+            this.evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Registers the given directory and all directories below it with the {@link WatchService}.
+     */
+    private void register(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(ContentCache.this.watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Processes file system events until the {@link WatchService} is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                final WatchKey key = this.watcher.take();
+                final Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        LOGGER.debug("Lost file system events below {}; clearing content cache", directory);
+                        this.clear();
+                        continue;
+                    }
+                    final Path changed = directory.resolve((Path) event.context());
+                    this.invalidate(changed);
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+                        try {
+                            this.register(changed);
+                        } catch (IOException e) {
+                            LOGGER.warn("Could not watch directory {}: {}", changed, e.getMessage());
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    this.invalidate(directory);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.debug("Stopped watching {}", this.root);
+        }
+    }
+
+    /**
+     * A cached file.
+     */
+    public static class Entry {
+
+        /**
+         * Content of the file; read-only, use {@link ByteBuffer#duplicate()} before reading.
+         */
+        public final ByteBuffer data;
+
+        public final long length;
+
+        public final String type;
+
+        public final long modified;
+
+        public final String etag;
+
+        private Entry(ByteBuffer data, String type, long modified, String etag) {
+            this.data = data;
+            this.length = data.remaining();
+            this.type = type;
+            this.modified = modified;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.content;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriterListener;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
+import ch.unibas.dmi.dbis.vrem.model.objects.CulturalHeritageObject.CHOType;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Manages downscaled levels of detail of images, which are stored as siblings of the original file (e.g. {@code painting.png.lod256.png} next to {@code painting.png}). A level is named after the maximum width or height of its image.
+ * <p>
+ * Levels are generated in the background on a bounded pool, either when an image is uploaded (this class is a {@link VREMWriterListener}), when it is imported or the first time a level is requested. Levels are only generated if they are smaller than the original. Images that may be transparent are stored as PNG, all others as JPEG.
+ */
+public class LevelsOfDetail implements VREMWriterListener {
+
+    private static final Logger LOGGER = LogManager.getLogger(LevelsOfDetail.class);
+
+    /**
+     * Levels generated if none are configured.
+     */
+    public static final List<Integer> DEFAULT_LEVELS = Collections.unmodifiableList(Arrays.asList(256, 1024, 4096));
+
+    /**
+     * Matches the file names of generated levels.
+     */
+    private static final Pattern VARIANT = Pattern.compile(".*\\.lod\\d+\\.(jpg|png)$");
+
+    /**
+     * Maximum number of pending tasks.
+     */
+    private static final int MAX_PENDING = 256;
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Content types that can be decoded.
+     */
+    private static final Set<String> SCALABLE = new HashSet<>(Arrays.asList("image/jpeg", "image/png", "image/gif", "image/bmp"));
+
+    /**
+     * Document root; paths of uploaded {@link Exhibit}s are relative to it.
+     */
+    private final Path root;
+
+    /**
+     * Configured levels in ascending order.
+     */
+    private final int[] levels;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Files for which levels are currently being generated.
+     */
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Processed originals by path, so that levels that are not smaller than the original are not generated over and over again.
+     */
+    private final ConcurrentHashMap<Path, Processed> processed = new ConcurrentHashMap<>();
+
+    /**
+     * @param root Document root.
+     * @param levels Sizes of the levels in pixels. If NULL or empty, {@link #DEFAULT_LEVELS} are used.
+     * @param threads Number of threads that generate levels.
+     * @param throttle If true, callers generate levels themselves while the queue is full (used by batch imports); otherwise, such requests are dropped.
+     */
+    public LevelsOfDetail(Path root, List<Integer> levels, int threads, boolean throttle) {
+        this.root = root;
+        this.levels = (levels == null || levels.isEmpty() ? DEFAULT_LEVELS : levels).stream().mapToInt(Integer::intValue).filter(l -> l > 0).sorted().distinct().toArray();
+        final AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING), r -> {
+            final Thread thread = new Thread(r, "lod-generator-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, throttle ? new ThreadPoolExecutor.CallerRunsPolicy() : new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Checks whether levels can be generated for content of the given type.
+     */
+    public boolean isScalable(String type) {
+        return type != null && SCALABLE.contains(type);
+    }
+
+    /**
+     * Checks whether the given file name belongs to a generated level.
+     */
+    public static boolean isVariant(String fileName) {
+        return VARIANT.matcher(fileName).matches();
+    }
+
+    /**
+     * Selects the file to serve for a requested level, i.e. the smallest configured level that is at least as large as requested. Missing levels are scheduled for generation.
+     *
+     * @param file Absolute path of the original file.
+     * @param modified Last modification of the original file in milliseconds since the epoch.
+     * @param requested Requested size in pixels.
+     * @return Path of the level, the original file if it is not larger than the level, or NULL if the level is not available yet.
+     */
+    public Path select(Path file, long modified, int requested) throws IOException {
+        int level = -1;
+        for (int l : this.levels) {
+            if (l >= requested) {
+                level = l;
+                break;
+            }
+        }
+        if (level < 0) {
+            return file;
+        }
+        final Path variant = this.variant(file, level);
+        try {
+            if (Files.getLastModifiedTime(variant).toMillis() >= modified) {
+                return variant;
+            }
+        } catch (NoSuchFileException e) {
+            /* Not generated yet. */
+        }
+        final Processed original = this.processed.get(file);
+        if (original != null && original.modified == modified && original.size <= level) {
+            return file;
+        }
+        this.generate(file);
+        return null;
+    }
+
+    /**
+     * Schedules the generation of all levels of the given file, unless they are already being generated.
+     *
+     * @param file Absolute path of the original file.
+     */
+    public void generate(Path file) {
+        if (!this.pending.add(file)) {
+            return;
+        }
+        try {
+            this.executor.execute(() -> {
+                try {
+                    this.scale(file);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Could not generate levels of detail for {}: {}", file, e.getMessage());
+                } finally {
+                    this.pending.remove(file);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.pending.remove(file);
+        }
+    }
+
+    /**
+     * Waits until all scheduled levels have been generated and stops the pool.
+     */
+    public void shutdown() throws InterruptedException {
+        this.executor.shutdown();
+        this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onExhibitUploaded(String collection, Exhibit exhibit) {
+        if (exhibit.type == CHOType.IMAGE && exhibit.path != null) {
+            this.generate(this.root.resolve(exhibit.path));
+        }
+    }
+
+    /**
+     * Returns the path of the given level of a file.
+     */
+    private Path variant(Path file, int level) {
+        final String name = file.getFileName().toString();
+        final String lower = name.toLowerCase(Locale.ROOT);
+        final String format = lower.endsWith(".png") || lower.endsWith(".gif") ? "png" : "jpg";
+        return file.resolveSibling(name + ".lod" + level + "." + format);
+    }
+
+    /**
+     * Generates all levels that are smaller than the original, starting with the largest one; each level is downscaled from the previous one. Levels are written to temporary files and moved into place once complete.
+     */
+    private void scale(Path file) throws IOException {
+        final long modified = Files.getLastModifiedTime(file).toMillis();
+        final BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) {
+            LOGGER.debug("No image reader for {}", file);
+            this.processed.put(file, new Processed(modified, 0));
+            return;
+        }
+        final int size = Math.max(image.getWidth(), image.getHeight());
+        BufferedImage source = image;
+        for (int i = this.levels.length - 1; i >= 0; i--) {
+            if (this.levels[i] >= size) {
+                continue;
+            }
+            final Path target = this.variant(file, this.levels[i]);
+            final boolean png = target.getFileName().toString().endsWith(".png");
+            source = downscale(source, this.levels[i], png);
+            final Path temporary = Files.createTempFile(file.getParent(), ".", ".lod.tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temporary)) {
+                    if (png) {
+                        ImageIO.write(source, "png", out);
+                    } else {
+                        writeJpeg(source, out);
+                    }
+                }
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.debug("Generated level of detail {}", target);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        this.processed.put(file, new Processed(modified, size));
+    }
+
+    /**
+     * Downscales an image so that neither width nor height exceed the given size. Scaling is done in steps of at most one half, which keeps bilinear interpolation from skipping pixels.
+     */
+    private static BufferedImage downscale(BufferedImage image, int size, boolean alpha) {
+        final double factor = size / (double) Math.max(image.getWidth(), image.getHeight());
+        final int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        final int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        BufferedImage current = image;
+        do {
+            final int w = Math.max(width, current.getWidth() / 2);
+            final int h = Math.max(height, current.getHeight() / 2);
+            final BufferedImage next = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            final Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, w, h, null);
+            graphics.dispose();
+            current = next;
+        } while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+    private static void writeJpeg(BufferedImage image, OutputStream out) throws IOException {
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * An original whose levels have been generated.
+     */
+    private static class Processed {
+
+        private final long modified;
+
+        /**
+         * Larger dimension of the original in pixels; 0 if it could not be decoded.
+         */
+        private final int size;
+
+        private Processed(long modified, int size) {
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.content;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the content type of files based on their extension.
+ * <p>
+ * Only files with an unknown extension are probed using {@link Files#probeContentType(Path)}; the result is memoized per path.
+ */
+public class MimeTypes {
+
+    /**
+     * Content type used if none can be determined.
+     */
+    public static final String DEFAULT_TYPE = "application/octet-stream";
+
+    /**
+     * Maximum number of memoized probe results.
+     */
+    private static final int MAX_PROBED = 10000;
+
+    /**
+     * Content types by lower case extension.
+     */
+    private final Map<String, String> types = new HashMap<>();
+
+    /**
+     * Memoized results of {@link Files#probeContentType(Path)}.
+     */
+    private final ConcurrentHashMap<Path, String> probed = new ConcurrentHashMap<>();
+
+    /**
+     * @param overrides Content types by extension, which take precedence over the built-in ones. May be NULL!
+     */
+    public MimeTypes(Map<String, String> overrides) {
+        /* Images. */
+        this.types.put("jpg", "image/jpeg");
+        this.types.put("jpeg", "image/jpeg");
+        this.types.put("png", "image/png");
+        this.types.put("gif", "image/gif");
+        this.types.put("bmp", "image/bmp");
+        this.types.put("webp", "image/webp");
+        this.types.put("tif", "image/tiff");
+        this.types.put("tiff", "image/tiff");
+        this.types.put("svg", "image/svg+xml");
+
+        /* 3D models. */
+        this.types.put("glb", "model/gltf-binary");
+        this.types.put("gltf", "model/gltf+json");
+        this.types.put("obj", "model/obj");
+        this.types.put("mtl", "model/mtl");
+        this.types.put("stl", "model/stl");
+
+        /* Audio & video. */
+        this.types.put("mp3", "audio/mpeg");
+        this.types.put("ogg", "audio/ogg");
+        this.types.put("wav", "audio/wav");
+        this.types.put("m4a", "audio/mp4");
+        this.types.put("mp4", "video/mp4");
+        this.types.put("webm", "video/webm");
+
+        /* Other. */
+        this.types.put("json", "application/json");
+        this.types.put("txt", "text/plain");
+
+        if (overrides != null) {
+            overrides.forEach((extension, type) -> this.types.put(extension.toLowerCase(Locale.ROOT), type));
+        }
+    }
+
+    /**
+     * Returns the content type of the given file.
+     *
+     * @param path Path of the file.
+     * @return The content type, never NULL.
+     */
+    public String resolve(Path path) {
+        final String type = this.types.get(extension(path));
+        if (type != null) {
+            return type;
+        }
+        if (this.probed.size() >= MAX_PROBED) {
+            this.probed.clear();
+        }
+        return this.probed.computeIfAbsent(path, p -> {
+            try {
+                final String probe = Files.probeContentType(p);
+                return probe != null ? probe : DEFAULT_TYPE;
+            } catch (IOException e) {
+                return DEFAULT_TYPE;
+            }
+        });
+    }
+
+    /**
+     * Returns the lower case extension of the given file or an empty string, if it has none.
+     */
+    public static String extension(Path path) {
+        final Path name = path.getFileName();
+        if (name == null) {
+            return "";
+        }
+        final String fileName = name.toString();
+        final int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
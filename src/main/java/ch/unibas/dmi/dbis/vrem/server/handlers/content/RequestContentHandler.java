@@ -1,28 +1,77 @@
 package ch.unibas.dmi.dbis.vrem.server.handlers.content;
 
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.HttpHeaders;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
 import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.eclipse.jetty.server.HttpOutput;
 import spark.Request;
 import spark.Response;
 import spark.Route;
 
 public class RequestContentHandler implements Route {
 
+    /**
+     * Files of at least this size are memory-mapped and handed to Jetty as a whole, which writes them to the socket without copying them through the heap.
+     */
+    private static final long MAPPING_THRESHOLD = 64 * 1024;
+
+    /**
+     * Maximum size of a single memory-mapped region.
+     */
+    private static final long MAPPING_WINDOW = 64 * 1024 * 1024;
+
+    /**
+     * Query parameter that requests a downscaled image no larger than the given number of pixels, see {@link LevelsOfDetail}.
+     */
+    public static final String PARAMETER_LOD = "lod";
+
     private final Path root;
+    private final CachePolicy policy;
+    private final ContentCache cache;
+    private final MimeTypes types;
+    private final CompressedVariants variants;
+    private final LevelsOfDetail levels;
     private static final Logger LOGGER = LogManager.getLogger(RequestContentHandler.class);
 
     /**
      *
      */
     public RequestContentHandler(Path root) {
-        this.root = root;
+        this(root, new CachePolicy(null), null, new MimeTypes(null), null, null);
+    }
+
+    /**
+     * @param policy {@link CachePolicy} that determines the {@code Cache-Control} header.
+     * @param cache {@link ContentCache} for small files. May be NULL!
+     * @param types {@link MimeTypes} used to determine the content type.
+     * @param variants {@link CompressedVariants} used to serve precompressed content. May be NULL!
+     * @param levels {@link LevelsOfDetail} used to serve downscaled images requested with {@code ?lod=}. May be NULL!
+     */
+    public RequestContentHandler(Path root, CachePolicy policy, ContentCache cache, MimeTypes types, CompressedVariants variants, LevelsOfDetail levels) {
+        this.root = root.toAbsolutePath().normalize();
+        this.policy = policy;
+        this.cache = cache;
+        this.types = types;
+        this.variants = variants;
+        this.levels = levels;
     }
 
 
@@ -38,39 +87,308 @@ public class RequestContentHandler implements Route {
             return 404;
         }
 
-        final Path absolute = this.root.resolve(path);
-        if (!Files.exists(absolute)) {
+        final Path absolute = this.root.resolve(path).normalize();
+        if (!absolute.startsWith(this.root)) {
+            LOGGER.debug("Path {} is outside of the document root", absolute);
+            response.status(404);
+            return 404;
+        }
+
+        final Resolved original = this.resolve(absolute, null);
+        if (original == null) {
             LOGGER.debug("Path {} does not exist", absolute.toAbsolutePath().toString());
             response.status(404);
             return 404;
         }
+        final String type = original.cached != null ? original.cached.type : this.types.resolve(absolute);
+        final String cacheControl = this.policy.cacheControl(this.root.relativize(absolute).toString().replace(File.separatorChar, '/'), type);
 
-        /* Prepare response. */
-        response.type(Files.probeContentType(absolute));
-        response.header("Transfer-Encoding", "identity");
+        /* Serve a downscaled level of an image, if requested; until it has been generated, the original is served but must not be cached. */
+        final String lod = request.queryParams(PARAMETER_LOD);
+        if (lod != null && this.levels != null && this.levels.isScalable(type)) {
+            final Path level = this.levels.select(absolute, original.modified, parseLevel(lod));
+            if (level == null) {
+                return this.serve(request, response, absolute, original, type, "no-cache", null);
+            }
+            final Resolved resolved = level.equals(absolute) ? null : this.resolve(level, null);
+            if (resolved != null) {
+                final String levelType = this.types.resolve(level);
+                return this.serve(request, response, level, resolved, levelType, this.policy.cacheControl(this.root.relativize(level).toString().replace(File.separatorChar, '/'), levelType), null);
+            }
+        }
+
+        /* Serve a precompressed variant, if the client accepts one and it is not older than the original. */
+        if (this.variants != null && this.variants.isCompressible(type)) {
+            response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            final String accept = request.headers(HttpHeaders.ACCEPT_ENCODING);
+            for (CompressedVariants.Encoding encoding : CompressedVariants.ENCODINGS) {
+                if (!HttpHeaders.acceptsEncoding(accept, encoding.name)) {
+                    continue;
+                }
+                final Path variant = encoding.variant(absolute);
+                final Resolved resolved = this.resolve(variant, encoding.name);
+                if (resolved != null && resolved.modified >= original.modified) {
+                    return this.serve(request, response, variant, resolved, type, cacheControl, encoding.name);
+                }
+                if (encoding.name.equals(HttpHeaders.ENCODING_GZIP)) {
+                    this.variants.generate(absolute, original.length);
+                }
+            }
+        }
+        return this.serve(request, response, absolute, original, type, cacheControl, null);
+    }
+
+    /**
+     * Parses the value of the {@value #PARAMETER_LOD} parameter.
+     *
+     * @throws InvalidParameterException If it is not a positive number.
+     */
+    private static int parseLevel(String lod) throws InvalidParameterException {
+        try {
+            final int level = Integer.parseInt(lod);
+            if (level > 0) {
+                return level;
+            }
+        } catch (NumberFormatException e) {
+            /* Handled below. */
+        }
+        throw new InvalidParameterException(PARAMETER_LOD, lod);
+    }
+
+    /**
+     * Resolves the metadata of a file, either from the {@link ContentCache} or from the file system.
+     *
+     * @param file Absolute path of the file.
+     * @param encoding Content coding of the file or NULL, if it is not encoded.
+     * @return {@link Resolved} or NULL, if the file does not exist.
+     */
+    private Resolved resolve(Path file, String encoding) throws IOException {
+        /* Cache hits are resolved without accessing the file system. */
+        final ContentCache.Entry cached = this.cache != null ? this.cache.get(file) : null;
+        if (cached != null) {
+            return new Resolved(cached.length, cached.modified, cached.etag, cached);
+        }
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        final long length = attributes.size();
+        final long modified = attributes.lastModifiedTime().toMillis();
+        final String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(modified) + (encoding != null ? "-" + encoding : "") + "\"";
+        return new Resolved(length, modified, etag, null);
+    }
+
+    /**
+     * Serves a resolved file from the {@link ContentCache} or, if it is too large to be cached, from disk.
+     *
+     * @param cacheControl Value of the {@code Cache-Control} header, see {@link CachePolicy}.
+     * @param encoding Content coding of the file or NULL, if it is not encoded.
+     */
+    private Object serve(Request request, Response response, Path file, Resolved resolved, String type, String cacheControl, String encoding) throws IOException {
+        ContentCache.Entry cached = resolved.cached;
+        if (cached == null && this.cache != null && this.cache.accepts(resolved.length)) {
+            cached = this.cache.load(file, type, resolved.modified, resolved.etag);
+        }
+        if (cached != null) {
+            final ByteBuffer data = cached.data;
+            return this.serve(request, response, cached.length, resolved.modified, type, cacheControl, resolved.etag, encoding, (position, count, out) -> transfer(data, position, count, out));
+        }
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return this.serve(request, response, resolved.length, resolved.modified, type, cacheControl, resolved.etag, encoding, (position, count, out) -> transfer(channel, position, count, out));
+        }
+    }
+
+    /**
+     * Serves content, taking conditional and range requests into account.
+     *
+     * @param length Length of the content in bytes.
+     * @param modified Last modification of the content in milliseconds since the epoch.
+     * @param type Content type.
+     * @param cacheControl Value of the {@code Cache-Control} header, see {@link CachePolicy}.
+     * @param etag Strong entity tag of the content.
+     * @param encoding Content coding of the content or NULL, if it is not encoded.
+     * @param source Transfers regions of the content.
+     */
+    private Object serve(Request request, Response response, long length, long modified, String type, String cacheControl, String etag, String encoding, Source source) throws IOException {
+        response.type(type);
         response.header("Access-Control-Allow-Origin", "*");
         response.header("Access-Control-Allow-Headers", "*");
-        /* Transfer data. */
-        try (final InputStream in = Files.newInputStream(absolute, StandardOpenOption.READ); final OutputStream out = response.raw().getOutputStream()) {
-            int length = fastCopy(in, out);
-            response.header("Content-Length", String.valueOf(length));
-            out.flush();
+        response.header(HttpHeaders.ACCEPT_RANGES, ByteRange.UNIT);
+        response.header(HttpHeaders.ETAG, etag);
+        response.header(HttpHeaders.LAST_MODIFIED, HttpHeaders.formatDate(modified));
+        response.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+        /* Evaluate conditional request; If-None-Match takes precedence over If-Modified-Since. */
+        if (this.isNotModified(request, etag, modified)) {
+            response.status(304);
+            return "";
+        }
+        if (encoding != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+
+        /* Evaluate range request; If-Range makes it conditional on the content being unchanged. */
+        List<ByteRange> ranges = null;
+        if (this.matchesIfRange(request.headers(HttpHeaders.IF_RANGE), etag, modified)) {
+            ranges = ByteRange.parse(request.headers(HttpHeaders.RANGE), length);
+        }
+
+        /* Transfer data; the length has to be known before the first byte is written. */
+        final OutputStream out = response.raw().getOutputStream();
+        if (ranges == null) {
+            response.raw().setContentLengthLong(length);
+            source.transfer(0, length, out);
+        } else if (ranges.isEmpty()) {
+            response.status(416);
+            response.header(HttpHeaders.CONTENT_RANGE, ByteRange.UNIT + " */" + length);
+            response.raw().setContentLengthLong(0);
+        } else if (ranges.size() == 1) {
+            final ByteRange range = ranges.get(0);
+            response.status(206);
+            response.header(HttpHeaders.CONTENT_RANGE, range.contentRange(length));
+            response.raw().setContentLengthLong(range.length());
+            source.transfer(range.first, range.length(), out);
+        } else {
+            this.transferMultipart(source, type, length, ranges, response, out);
         }
+        out.flush();
+
+        /* The response has been committed, Spark won't write anything else. */
+        return "";
+    }
 
-        return null;
+    /**
+     * Checks whether the client's copy is still valid according to {@code If-None-Match} or, if absent, {@code If-Modified-Since}.
+     */
+    private boolean isNotModified(Request request, String etag, long modified) {
+        final String ifNoneMatch = request.headers(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return HttpHeaders.matchesEntityTag(ifNoneMatch, etag);
+        }
+        final long since = HttpHeaders.parseDate(request.headers(HttpHeaders.IF_MODIFIED_SINCE));
+        return since >= 0 && modified / 1000 <= since;
     }
 
     /**
+     * Sends multiple ranges as a {@code multipart/byteranges} response.
+     */
+    private void transferMultipart(Source source, String type, long length, List<ByteRange> ranges, Response response, OutputStream out) throws IOException {
+        final String boundary = new ObjectId().toHexString();
+        final byte[][] headers = new byte[ranges.size()][];
+        final byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        long total = trailer.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            final ByteRange range = ranges.get(i);
+            headers[i] = ("\r\n--" + boundary + "\r\n" + (type != null ? "Content-Type: " + type + "\r\n" : "") + "Content-Range: " + range.contentRange(length) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            total += headers[i].length + range.length();
+        }
+        response.status(206);
+        response.type("multipart/byteranges; boundary=" + boundary);
+        response.raw().setContentLengthLong(total);
+        for (int i = 0; i < ranges.size(); i++) {
+            out.write(headers[i]);
+            source.transfer(ranges.get(i).first, ranges.get(i).length(), out);
+        }
+        out.write(trailer);
+    }
+
+    /**
+     * Checks whether an {@code If-Range} header allows a partial response, i.e. whether it is absent or the validator it carries still matches the file. Entity tags are compared strongly.
+     */
+    private boolean matchesIfRange(String header, String etag, long modified) {
+        if (header == null) {
+            return true;
+        }
+        if (header.startsWith("\"") || header.startsWith("W/")) {
+            return header.equals(etag);
+        }
+        return HttpHeaders.parseDate(header) == modified / 1000;
+    }
+
+    /**
+     * Transfers a region of a file to an {@link OutputStream}. If the stream is Jetty's {@link HttpOutput} and the region is large, the file is memory-mapped and written without an intermediate copy. Otherwise, {@link FileChannel#transferTo(long, long, WritableByteChannel)} is used.
      *
+     * @param channel The {@link FileChannel} to read from.
+     * @param position Position of the first byte to transfer.
+     * @param count Number of bytes to transfer.
+     * @param out The {@link OutputStream} to write to.
+     */
+    public static void transfer(final FileChannel channel, final long position, final long count, final OutputStream out) throws IOException {
+        if (out instanceof HttpOutput && count >= MAPPING_THRESHOLD) {
+            final HttpOutput output = (HttpOutput) out;
+            for (long offset = 0; offset < count; offset += MAPPING_WINDOW) {
+                output.write(channel.map(MapMode.READ_ONLY, position + offset, Math.min(MAPPING_WINDOW, count - offset)));
+            }
+        } else {
+            final WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (transferred < count) {
+                final long written = channel.transferTo(position + transferred, count - transferred, target);
+                if (written <= 0) {
+                    throw new IOException("Unexpected end of file while transferring " + count + " bytes.");
+                }
+                transferred += written;
+            }
+        }
+    }
+
+    /**
+     * Transfers a region of a {@link ByteBuffer} to an {@link OutputStream}.
+     *
+     * @param data The {@link ByteBuffer} to read from; its position and limit are not modified.
+     * @param position Position of the first byte to transfer, relative to the buffer's position.
+     * @param count Number of bytes to transfer.
+     * @param out The {@link OutputStream} to write to.
+     */
+    public static void transfer(final ByteBuffer data, final long position, final long count, final OutputStream out) throws IOException {
+        final ByteBuffer region = data.duplicate();
+        region.position(data.position() + (int) position);
+        region.limit(region.position() + (int) count);
+        if (out instanceof HttpOutput) {
+            ((HttpOutput) out).write(region);
+        } else {
+            final WritableByteChannel target = Channels.newChannel(out);
+            while (region.hasRemaining()) {
+                target.write(region);
+            }
+        }
+    }
+
+    /**
+     * Source of the content being served.
+     */
+    @FunctionalInterface
+    private interface Source {
+
+        /**
+         * Transfers a region of the content to an {@link OutputStream}.
+         */
+        void transfer(long position, long count, OutputStream out) throws IOException;
+    }
+
+    /**
+     * Metadata of a file that is about to be served.
      */
-    public static int fastCopy(final InputStream src, final OutputStream dest) throws IOException {
-        byte[] buffer = new byte[1024]; // Adjust if you want
-        int bytesRead = 0;
-        int totalBytesRead = 0;
-        while ((bytesRead = src.read(buffer)) != -1) {
-            dest.write(buffer, 0, bytesRead);
-            totalBytesRead += bytesRead;
+    private static class Resolved {
+
+        private final long length;
+
+        private final long modified;
+
+        private final String etag;
+
+        /**
+         * The cached file. May be NULL!
+         */
+        private final ContentCache.Entry cached;
+
+        private Resolved(long length, long modified, String etag, ContentCache.Entry cached) {
+            this.length = length;
+            this.modified = modified;
+            this.etag = etag;
+            this.cached = cached;
         }
-        return totalBytesRead;
     }
 }
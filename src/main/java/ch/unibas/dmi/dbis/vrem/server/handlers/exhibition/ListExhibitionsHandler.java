@@ -1,11 +1,14 @@
 package ch.unibas.dmi.dbis.vrem.server.handlers.exhibition;
 
+import ch.unibas.dmi.dbis.vrem.database.dao.PageRequest;
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
-import ch.unibas.dmi.dbis.vrem.model.ListExhibitionsResponse;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.ExhibitionSummary;
 import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
 import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.StreamingResult;
 import java.util.List;
 import java.util.Map;
+import org.bson.types.ObjectId;
 
 public class ListExhibitionsHandler extends ParsingActionHandler<List> {
 
@@ -20,9 +23,22 @@ public class ListExhibitionsHandler extends ParsingActionHandler<List> {
     }
 
 
+    /**
+     * Lists exhibitions sorted by {@code id} (default) or {@code name}; see {@link #pageRequest(Map, String...)} for the supported parameters. Summaries are streamed from the database cursor.
+     */
     @Override
     public Object doGet(Map<String, String> parameters) throws ActionHandlerException {
-        return new ListExhibitionsResponse(this.reader.listExhibitions());
+        final PageRequest page = this.pageRequest(parameters, VREMReader.SORT_ID, VREMReader.SORT_NAME);
+        final boolean byName = page.sort.equals(VREMReader.SORT_NAME);
+        return StreamingResult.page("exhibitions", this.reader.listExhibitions(page), ExhibitionSummary.class, page, s -> PageRequest.cursor(byName ? s.name : s.objectId, s.objectId));
+    }
+
+    /**
+     * Exhibitions use their id as tiebreaker.
+     */
+    @Override
+    protected boolean isTiebreaker(String tiebreaker) {
+        return ObjectId.isValid(tiebreaker);
     }
 
     @Override
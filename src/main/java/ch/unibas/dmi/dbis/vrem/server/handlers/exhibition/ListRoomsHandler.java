@@ -0,0 +1,32 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.exhibition;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.RoomSummary;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import java.util.List;
+import java.util.Map;
+import org.bson.types.ObjectId;
+
+/**
+ * Returns the room manifest of an exhibition, i.e. a {@link RoomSummary} per room. Clients use it to load rooms one by one through {@link LoadRoomHandler}.
+ */
+public class ListRoomsHandler extends ParsingActionHandler<RoomSummary> {
+
+    private final VREMReader reader;
+
+    public ListRoomsHandler(VREMReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public List<RoomSummary> doGet(Map<String, String> parameters) throws ActionHandlerException {
+        final ObjectId id = LoadExhibitionHandler.objectId(parameters);
+        return id == null ? null : this.reader.listRooms(id);
+    }
+
+    @Override
+    public Class<RoomSummary> inClass() {
+        return RoomSummary.class;
+    }
+}
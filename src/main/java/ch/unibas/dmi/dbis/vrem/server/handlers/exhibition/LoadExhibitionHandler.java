@@ -1,40 +1,281 @@
 package ch.unibas.dmi.dbis.vrem.server.handlers.exhibition;
 
+import ch.unibas.dmi.dbis.vrem.cache.ExhibitionResponseCache;
+import ch.unibas.dmi.dbis.vrem.cache.ExhibitionResponseCache.SerializedExhibition;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMAsyncReader;
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import ch.unibas.dmi.dbis.vrem.server.AsyncJettyServerFactory;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.HttpHeaders;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
 import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bson.types.ObjectId;
+import spark.Request;
+import spark.Response;
 
 public class LoadExhibitionHandler extends ParsingActionHandler<Exhibition> {
 
     private final VREMReader reader;
 
+    /**
+     * Optional non-blocking reader; if set, cached responses are completed asynchronously. May be NULL!
+     */
+    private final VREMAsyncReader async;
+
+    /**
+     * Executes the asynchronous completion of responses. May be NULL if {@link #async} is NULL!
+     */
+    private final Executor executor;
+
+    /**
+     * Milliseconds after which an asynchronously processed request is answered with 503.
+     */
+    private final long timeout;
+
+    /**
+     * Cache for serialized exhibitions. May be NULL, in which case exhibitions are streamed.
+     */
+    private final ExhibitionResponseCache responses;
+
+    /**
+     * Cache for serialized skeletons. May be NULL, in which case skeletons are streamed.
+     */
+    private final ExhibitionResponseCache skeletons;
+
+    /**
+     * Query parameter that selects what is loaded; either {@link #MODE_FULL} (default) or {@link #MODE_SKELETON}.
+     */
+    public final static String PARAMETER_MODE = "mode";
+
+    public final static String MODE_FULL = "full";
+
+    /**
+     * Loads the exhibition without the descriptions of its exhibits, see {@link VREMReader#SKELETON}.
+     */
+    public final static String MODE_SKELETON = "skeleton";
+
     private final static String ATTRIBUTE_ID = ":id";
 
     private final static String ATTRIBUTE_NAME = ":name";
 
+    private final static byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
     private final static Logger LOGGER = LogManager.getLogger(LoadExhibitionHandler.class);
 
     public LoadExhibitionHandler(VREMReader reader) {
+        this(reader, null, null);
+    }
+
+    /**
+     * @param responses {@link ExhibitionResponseCache} used to serve serialized exhibitions. May be NULL!
+     * @param skeletons {@link ExhibitionResponseCache} used to serve serialized skeletons. May be NULL!
+     */
+    public LoadExhibitionHandler(VREMReader reader, ExhibitionResponseCache responses, ExhibitionResponseCache skeletons) {
+        this(reader, null, null, 0, responses, skeletons);
+    }
+
+    /**
+     * @param async {@link VREMAsyncReader} used to load exhibitions without blocking the request thread. Requires the {@link AsyncJettyServerFactory}. May be NULL!
+     * @param executor {@link Executor} that serializes and writes responses once an exhibition has been loaded, so that the database driver's threads are never blocked by clients.
+     * @param timeout Milliseconds after which an asynchronously processed request is answered with 503.
+     * @param responses {@link ExhibitionResponseCache} used to serve serialized exhibitions. May be NULL!
+     * @param skeletons {@link ExhibitionResponseCache} used to serve serialized skeletons. May be NULL!
+     */
+    public LoadExhibitionHandler(VREMReader reader, VREMAsyncReader async, Executor executor, long timeout, ExhibitionResponseCache responses, ExhibitionResponseCache skeletons) {
         this.reader = reader;
+        this.async = async;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.responses = responses;
+        this.skeletons = skeletons;
     }
 
+    /**
+     * Serves exhibitions and skeletons from the respective {@link ExhibitionResponseCache} (if available). Responses carry a strong ETag; a matching {@code If-None-Match} is answered with 304 and the gzip compressed copy is sent to clients that accept it.
+     * <p>
+     * If a {@link VREMAsyncReader} is available, the request is put into asynchronous mode and the request thread is released while the exhibition is being loaded. Requests that take longer than the configured timeout are answered with 503.
+     */
     @Override
-    public Exhibition doGet(Map<String, String> parameters) {
+    public Object handle(Request request, Response response) throws Exception {
+        if (!request.requestMethod().equals("GET")) {
+            return super.handle(request, response);
+        }
+        final Map<String, String> parameters = this.parameters(request);
+        final boolean skeleton = isSkeleton(parameters);
+        final ExhibitionResponseCache cache = skeleton ? this.skeletons : this.responses;
+        if (cache == null) {
+            return super.handle(request, response);
+        }
+        if (this.async == null) {
+            this.send(request, response, cache, this.doGet(parameters));
+
+            /* The response has been committed, Spark won't write (or compress) anything else. */
+            return "";
+        }
+
+        /* Malformed ids are rejected before the request is put into asynchronous mode, so that they are answered with 400. */
+        final ObjectId id = objectId(parameters);
+        final AsyncContext context = request.raw().startAsync();
+        context.setTimeout(this.timeout);
+
+        /* Either the timeout or the completion answers the request, whichever comes first. */
+        final AtomicBoolean answered = new AtomicBoolean();
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (answered.compareAndSet(false, true)) {
+                    LOGGER.warn("Loading exhibition for parameter values {} timed out", Arrays.toString(parameters.values().toArray()));
+                    ((HttpServletResponse) event.getSuppliedResponse()).sendError(503);
+                    context.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        CompletableFuture<Exhibition> future;
+        try {
+            future = this.load(id, parameters, skeleton);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        /* Dispatch from a plain callback, so that a rejection is seen here, whether or not the future has already completed. */
+        future.whenComplete((exhibition, error) -> {
+            try {
+                this.executor.execute(() -> {
+                    if (!answered.compareAndSet(false, true)) {
+                        return;
+                    }
+                    try {
+                        if (error != null) {
+                            LOGGER.error("Failed to load exhibition for parameter values {}", Arrays.toString(parameters.values().toArray()), error);
+                            response.raw().sendError(500);
+                        } else {
+                            this.send(request, response, cache, exhibition);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.warn("Failed to send exhibition: {}", e.getMessage());
+                    } finally {
+                        context.complete();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                /* Executor is shutting down or saturated: answer right away instead of waiting for the timeout. */
+                if (answered.compareAndSet(false, true)) {
+                    LOGGER.warn("Rejected sending exhibition for parameter values {}", Arrays.toString(parameters.values().toArray()));
+                    try {
+                        response.raw().sendError(503);
+                    } catch (IOException | RuntimeException ex) {
+                        LOGGER.warn("Failed to send exhibition: {}", ex.getMessage());
+                    } finally {
+                        context.complete();
+                    }
+                }
+            }
+        });
+
+        /* Spark leaves the response alone if no body is returned, see AsyncJettyServerFactory. */
+        return null;
+    }
+
+    /**
+     * Sends a serialized {@link Exhibition} (or {@code null}, if none was found) and commits the response.
+     */
+    private void send(Request request, Response response, ExhibitionResponseCache cache, Exhibition exhibition) throws IOException {
+        response.type("application/json");
+        final OutputStream out = response.raw().getOutputStream();
+        if (exhibition == null) {
+            out.write(NULL);
+            out.flush();
+            return;
+        }
+
+        final SerializedExhibition serialized = cache.get(exhibition);
+        final boolean gzip = HttpHeaders.acceptsEncoding(request.headers(HttpHeaders.ACCEPT_ENCODING), HttpHeaders.ENCODING_GZIP);
+        final String etag = gzip ? serialized.gzipEtag() : serialized.etag();
+        response.header(HttpHeaders.ETAG, etag);
+        response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.header(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (HttpHeaders.matchesEntityTag(request.headers(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.status(304);
+            response.raw().flushBuffer();
+            return;
+        }
+
+        final byte[] body;
+        if (gzip) {
+            body = serialized.gzip();
+            response.header(HttpHeaders.CONTENT_ENCODING, HttpHeaders.ENCODING_GZIP);
+        } else {
+            body = serialized.json();
+        }
+        response.raw().setContentLength(body.length);
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #doGet(Map)}.
+     */
+    private CompletableFuture<Exhibition> load(ObjectId objectId, Map<String, String> parameters, boolean skeleton) {
+        CompletableFuture<Exhibition> future = CompletableFuture.completedFuture(null);
+        if (objectId != null) {
+            LOGGER.debug("Loading exhibition by objectID {}", objectId);
+            future = skeleton ? this.async.getSkeleton(objectId) : this.async.getExhibition(objectId);
+        }
+        if (parameters.containsKey(ATTRIBUTE_NAME)) {
+            final String name = parameters.get(ATTRIBUTE_NAME);
+            future = future.thenCompose(exhibition -> {
+                if (exhibition != null) {
+                    return CompletableFuture.completedFuture(exhibition);
+                }
+                LOGGER.debug("Loading exhibition by name {}", name);
+                return skeleton ? this.async.getSkeleton(name) : this.async.getExhibition(name);
+            });
+        }
+        return future;
+    }
+
+    @Override
+    public Exhibition doGet(Map<String, String> parameters) throws ActionHandlerException {
+        final boolean skeleton = isSkeleton(parameters);
         Exhibition exhibition = null;
-        if (parameters.containsKey(ATTRIBUTE_ID)) {
-            final ObjectId objectId = new ObjectId(parameters.get(ATTRIBUTE_ID));
+        final ObjectId objectId = objectId(parameters);
+        if (objectId != null) {
             LOGGER.debug("Loading exhibition by objectID {}", objectId);
-            exhibition = this.reader.getExhibition(objectId);
+            exhibition = skeleton ? this.reader.getSkeleton(objectId) : this.reader.getExhibition(objectId);
         }
         if (parameters.containsKey(ATTRIBUTE_NAME) && exhibition == null) {
             final String name = parameters.get(ATTRIBUTE_NAME);
             LOGGER.debug("Loading exhibition by name {}", name);
-            exhibition = this.reader.getExhibition(name);
+            exhibition = skeleton ? this.reader.getSkeleton(name) : this.reader.getExhibition(name);
         }
         if (exhibition == null) {
             LOGGER.warn("No exhibition found for parameter values {}", Arrays.toString(parameters.values().toArray()));
@@ -44,6 +285,45 @@ public class LoadExhibitionHandler extends ParsingActionHandler<Exhibition> {
         return exhibition;
     }
 
+    /**
+     * Parses the id of the requested exhibition; shared by all handlers that address an exhibition by id.
+     *
+     * @return {@link ObjectId} or NULL, if the exhibition is requested by name.
+     * @throws InvalidParameterException If the id is malformed.
+     */
+    static ObjectId objectId(Map<String, String> parameters) throws InvalidParameterException {
+        final String id = parameters.get(ATTRIBUTE_ID);
+        if (id == null) {
+            return null;
+        }
+        if (!ObjectId.isValid(id)) {
+            throw new InvalidParameterException("id", id);
+        }
+        return new ObjectId(id);
+    }
+
+    /**
+     * Determines the requested load mode.
+     *
+     * @return True if a skeleton was requested, false if the full exhibition was requested.
+     * @throws InvalidParameterException If the mode is unknown.
+     */
+    static boolean isSkeleton(Map<String, String> parameters) throws InvalidParameterException {
+        final String mode = parameters.getOrDefault(PARAMETER_MODE, MODE_FULL);
+        if (!mode.equals(MODE_FULL) && !mode.equals(MODE_SKELETON)) {
+            throw new InvalidParameterException(PARAMETER_MODE, mode);
+        }
+        return mode.equals(MODE_SKELETON);
+    }
+
+    /**
+     * Exhibitions can grow to several megabytes and are therefore streamed to the client.
+     */
+    @Override
+    protected boolean isStreaming() {
+        return true;
+    }
+
     @Override
     public Class<Exhibition> inClass() {
         return Exhibition.class;
@@ -0,0 +1,54 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.exhibition;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+
+/**
+ * Returns the complete {@link Exhibit}s of an {@link Exhibition}, i.e. including the descriptions that are left out when loading a skeleton. Clients load these lazily, e.g. once a visitor approaches an exhibit.
+ */
+public class LoadExhibitsHandler extends ParsingActionHandler<Exhibit> {
+
+    private final VREMReader reader;
+
+    private final static String ATTRIBUTE_ID = ":id";
+
+    /**
+     * Optional query parameter; if set, only exhibits with this path are returned.
+     */
+    public final static String PARAMETER_PATH = "path";
+
+    private final static Logger LOGGER = LogManager.getLogger(LoadExhibitsHandler.class);
+
+    public LoadExhibitsHandler(VREMReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public List<Exhibit> doGet(Map<String, String> parameters) throws ActionHandlerException {
+        final ObjectId id = LoadExhibitionHandler.objectId(parameters);
+        final Exhibition exhibition = id == null ? null : this.reader.getExhibition(id);
+        if (exhibition == null) {
+            LOGGER.warn("No exhibition found for id {}", parameters.get(ATTRIBUTE_ID));
+            return null;
+        }
+        final String path = parameters.get(PARAMETER_PATH);
+        if (path == null) {
+            return exhibition.getExhibits();
+        }
+        return exhibition.getExhibits().stream().filter(e -> path.equals(e.path)).collect(Collectors.toList());
+    }
+
+    @Override
+    public Class<Exhibit> inClass() {
+        return Exhibit.class;
+    }
+}
@@ -0,0 +1,60 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.exhibition;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.polygonal.Room;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+
+/**
+ * Returns a single room of an exhibition, so that clients can enter the first room before the rest of the exhibition has been transferred. Supports the same {@code mode} parameter as {@link LoadExhibitionHandler}.
+ */
+public class LoadRoomHandler extends ParsingActionHandler<Room> {
+
+    private final VREMReader reader;
+
+    private final static String ATTRIBUTE_INDEX = ":index";
+
+    private final static Logger LOGGER = LogManager.getLogger(LoadRoomHandler.class);
+
+    public LoadRoomHandler(VREMReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Room doGet(Map<String, String> parameters) throws ActionHandlerException {
+        final String value = parameters.get(ATTRIBUTE_INDEX);
+        final int index;
+        try {
+            index = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterException("index", value);
+        }
+        if (index < 0) {
+            throw new InvalidParameterException("index", value);
+        }
+        final ObjectId id = LoadExhibitionHandler.objectId(parameters);
+        final Room room = id == null ? null : this.reader.getRoom(id, index, LoadExhibitionHandler.isSkeleton(parameters));
+        if (room == null) {
+            LOGGER.warn("No room {} found in exhibition {}", index, id);
+        }
+        return room;
+    }
+
+    /**
+     * Rooms with many walls and exhibits can still be large and are therefore streamed to the client.
+     */
+    @Override
+    protected boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public Class<Room> inClass() {
+        return Room.class;
+    }
+}
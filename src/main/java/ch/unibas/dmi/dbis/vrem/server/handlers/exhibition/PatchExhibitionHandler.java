@@ -0,0 +1,72 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.exhibition;
+
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMReader;
+import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.ExhibitionPatch;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ConflictException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+
+/**
+ * Applies an {@link ExhibitionPatch} to an exhibition. Responds with the new version, so that the client can base its next patch on it; if the exhibition has been changed in the meantime, a {@link ConflictException} is raised.
+ */
+public class PatchExhibitionHandler extends ParsingActionHandler<ExhibitionPatch> {
+
+    private final VREMReader reader;
+
+    private final VREMWriter writer;
+
+    private final static Logger LOGGER = LogManager.getLogger(PatchExhibitionHandler.class);
+
+    public PatchExhibitionHandler(VREMReader reader, VREMWriter writer) {
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+    @Override
+    public Map<String, Object> doPost(ExhibitionPatch patch, Map<String, String> parameters) throws ActionHandlerException {
+        if (patch == null || patch.operations == null || patch.operations.isEmpty()) {
+            throw new InvalidParameterException("The patch does not contain any operations.");
+        }
+        final ObjectId id = LoadExhibitionHandler.objectId(parameters);
+        if (id == null) {
+            throw new InvalidParameterException("id", null);
+        }
+        final Exhibition exhibition;
+        try {
+            exhibition = this.writer.patchExhibition(id, patch);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidParameterException(e.getMessage());
+        }
+
+        /* Find out why the update didn't match. */
+        if (exhibition == null) {
+            final Long version = this.reader.getVersion(id);
+            if (version == null) {
+                LOGGER.warn("No exhibition found for id {}", id);
+                return null;
+            } else if (version != patch.version) {
+                throw new ConflictException("Exhibition " + id + " is at version " + version + ", the patch is based on version " + patch.version + ".");
+            } else {
+                throw new InvalidParameterException("The patch addresses a room, wall or exhibit that does not exist.");
+            }
+        }
+        LOGGER.debug("Applied {} operations to exhibition {}, now at version {}", patch.operations.size(), id, exhibition.version);
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", exhibition.id.toHexString());
+        result.put("version", exhibition.version);
+        return result;
+    }
+
+    @Override
+    public Class<ExhibitionPatch> inClass() {
+        return ExhibitionPatch.class;
+    }
+}
@@ -2,9 +2,17 @@ package ch.unibas.dmi.dbis.vrem.server.handlers.exhibition;
 
 import ch.unibas.dmi.dbis.vrem.database.dao.VREMWriter;
 import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ConflictException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.HttpHeaders;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.InvalidParameterException;
 import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
 import java.util.Map;
+import spark.Request;
 
+/**
+ * Saves an exhibition as a new version; the version is assigned by the server. Clients that send an {@code If-Match} header with the version their copy is based on (e.g. {@code "3"}) only overwrite the exhibition if it hasn't been changed since, otherwise a {@link ConflictException} is raised.
+ */
 public class SaveExhibitionHandler extends ParsingActionHandler<Exhibition> {
 
     private final VREMWriter writer;
@@ -14,11 +22,52 @@ public class SaveExhibitionHandler extends ParsingActionHandler<Exhibition> {
     }
 
     @Override
-    public Exhibition doPost(Exhibition context, Map<String, String> parameters) {
-        this.writer.saveExhibition(context);
+    public Exhibition doPost(Exhibition context, Map<String, String> parameters) throws ActionHandlerException {
+        final String ifMatch = parameters.get(HttpHeaders.IF_MATCH);
+        try {
+            if (ifMatch == null) {
+                this.writer.saveExhibition(context);
+            } else {
+                final long version = version(ifMatch);
+                if (!this.writer.saveExhibition(context, version)) {
+                    throw new ConflictException("Exhibition " + context.id + " doesn't exist or has been changed since version " + version + ".");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            /* Another exhibition has the same name. */
+            throw new ConflictException(e.getMessage());
+        }
         return context;
     }
 
+    /**
+     * Adds the {@code If-Match} header to the parameters, if present.
+     */
+    @Override
+    protected Map<String, String> parameters(Request request) {
+        final Map<String, String> parameters = super.parameters(request);
+        final String ifMatch = request.headers(HttpHeaders.IF_MATCH);
+        if (ifMatch != null) {
+            parameters.put(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return parameters;
+    }
+
+    /**
+     * Parses the version from an {@code If-Match} header, i.e. a single, optionally quoted number.
+     */
+    private static long version(String ifMatch) throws InvalidParameterException {
+        String tag = ifMatch.trim();
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterException(HttpHeaders.IF_MATCH, ifMatch);
+        }
+    }
+
     @Override
     public Class<Exhibition> inClass() {
         return Exhibition.class;
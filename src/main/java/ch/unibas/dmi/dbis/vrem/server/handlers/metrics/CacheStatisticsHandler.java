@@ -0,0 +1,44 @@
+package ch.unibas.dmi.dbis.vrem.server.handlers.metrics;
+
+import ch.unibas.dmi.dbis.vrem.cache.CacheStatistics;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ActionHandlerException;
+import ch.unibas.dmi.dbis.vrem.server.handlers.basic.ParsingActionHandler;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Reports the {@link CacheStatistics} of all caches registered with it.
+ */
+public class CacheStatisticsHandler extends ParsingActionHandler<Map<String, CacheStatistics>> {
+
+    private final Map<String, Supplier<CacheStatistics>> caches = new LinkedHashMap<>();
+
+    /**
+     * Registers a cache with this {@link CacheStatisticsHandler}.
+     *
+     * @param name Name under which the statistics are reported.
+     * @param statistics Provides a snapshot of the cache's statistics.
+     * @return This {@link CacheStatisticsHandler}.
+     */
+    public CacheStatisticsHandler register(String name, Supplier<CacheStatistics> statistics) {
+        this.caches.put(name, statistics);
+        return this;
+    }
+
+    @Override
+    public Map<String, CacheStatistics> doGet(Map<String, String> parameters) throws ActionHandlerException {
+        final Map<String, CacheStatistics> result = new LinkedHashMap<>();
+        this.caches.forEach((name, statistics) -> result.put(name, statistics.get()));
+        return result;
+    }
+
+    /**
+     * Statistics are never posted; the cast only satisfies the generic signature.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<Map<String, CacheStatistics>> inClass() {
+        return (Class<Map<String, CacheStatistics>>) (Class<?>) Map.class;
+    }
+}
@@ -0,0 +1,53 @@
+package ch.unibas.dmi.dbis.vrem.server.serialization;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import org.bson.types.ObjectId;
+
+/**
+ * Streaming {@link TypeAdapter} for {@link ObjectId}s. An {@link ObjectId} is represented as {@code {"id": "<hex>"}}.
+ */
+public class ObjectIdTypeAdapter extends TypeAdapter<ObjectId> {
+
+    private static final String FIELD_NAME_ID = "id";
+
+    @Override
+    public void write(JsonWriter out, ObjectId value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name(FIELD_NAME_ID).value(value.toHexString());
+        out.endObject();
+    }
+
+    @Override
+    public ObjectId read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new JsonParseException("Couldn't parse objectId at " + in.getPath());
+        }
+        ObjectId id = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (FIELD_NAME_ID.equals(in.nextName())) {
+                id = new ObjectId(in.nextString());
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (id == null) {
+            throw new JsonParseException("Couldn't parse objectId: missing field '" + FIELD_NAME_ID + "'.");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,42 @@
+package ch.unibas.dmi.dbis.vrem.server.serialization;
+
+import ch.unibas.dmi.dbis.vrem.model.Vector3f;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Corridor;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibit;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.Exhibition;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.polygonal.Room;
+import ch.unibas.dmi.dbis.vrem.model.exhibition.polygonal.Wall;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import org.bson.types.ObjectId;
+
+/**
+ * Shared serialization layer used by all handlers.
+ * <p>
+ * {@link Gson} instances are thread-safe and cache the (reflective) {@link TypeAdapter}s they create. Hence a single instance is built once and the adapters for the exhibition model are resolved eagerly, so that no request has to pay for building them.
+ */
+public final class VREMGson {
+
+    private static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapter(ObjectId.class, new ObjectIdTypeAdapter())
+        .registerTypeAdapter(Vector3f.class, new Vector3fTypeAdapter())
+        .create();
+
+    public static final TypeAdapter<Exhibition> EXHIBITION = GSON.getAdapter(Exhibition.class);
+    public static final TypeAdapter<Room> ROOM = GSON.getAdapter(Room.class);
+    public static final TypeAdapter<Wall> WALL = GSON.getAdapter(Wall.class);
+    public static final TypeAdapter<Corridor> CORRIDOR = GSON.getAdapter(Corridor.class);
+    public static final TypeAdapter<Exhibit> EXHIBIT = GSON.getAdapter(Exhibit.class);
+    public static final TypeAdapter<Vector3f> VECTOR = GSON.getAdapter(Vector3f.class);
+
+    private VREMGson() {
+    }
+
+    /**
+     * Returns the shared {@link Gson} instance.
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+}
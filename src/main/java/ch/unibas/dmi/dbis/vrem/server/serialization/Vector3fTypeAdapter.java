@@ -0,0 +1,61 @@
+package ch.unibas.dmi.dbis.vrem.server.serialization;
+
+import ch.unibas.dmi.dbis.vrem.model.Vector3f;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Streaming {@link TypeAdapter} for {@link Vector3f}. Vectors are by far the most frequent objects in an exhibition, which is why they bypass reflection.
+ */
+public class Vector3fTypeAdapter extends TypeAdapter<Vector3f> {
+
+    private static final String FIELD_NAME_X = "x";
+    private static final String FIELD_NAME_Y = "y";
+    private static final String FIELD_NAME_Z = "z";
+
+    @Override
+    public void write(JsonWriter out, Vector3f value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name(FIELD_NAME_X).value((Number) value.x);
+        out.name(FIELD_NAME_Y).value((Number) value.y);
+        out.name(FIELD_NAME_Z).value((Number) value.z);
+        out.endObject();
+    }
+
+    @Override
+    public Vector3f read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        float x = 0.0f;
+        float y = 0.0f;
+        float z = 0.0f;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case FIELD_NAME_X:
+                    x = (float) in.nextDouble();
+                    break;
+                case FIELD_NAME_Y:
+                    y = (float) in.nextDouble();
+                    break;
+                case FIELD_NAME_Z:
+                    z = (float) in.nextDouble();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new Vector3f(x, y, z);
+    }
+}